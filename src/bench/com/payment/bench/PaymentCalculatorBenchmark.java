@@ -0,0 +1,306 @@
+package com.payment.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.payment.algo.IFindPaymentCalculator;
+import com.payment.algo.PaymentCalculatorEngine;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Benchmark of the calculator engines over several workloads.
+ * Each (engine, workload) pair runs in its own JVM, killed after a timeout, with a warm-up phase
+ * then a measurement phase. Reports the throughput, the latency percentiles, the bytes allocated
+ * by the calling thread and the GC activity per operation.
+ *
+ * Param 1: engines, comma separated (default: all)
+ * Param 2: workloads, comma separated (default: all)
+ *
+ */
+public class PaymentCalculatorBenchmark {
+
+	private static final long WARMUP_NANOS = 2000000000L;
+	private static final long MEASUREMENT_NANOS = 5000000000L;
+	private static final long FORK_TIMEOUT_MILLIS = 60000L;
+	private static final int MAX_OPERATIONS = 1000000;
+
+	// Keeps the results alive so that the calls are not optimized away.
+	private static volatile int sink;
+
+	/**
+	 * Workloads: bank transfer and due payments, always built from the same seed.
+	 */
+	enum Workload {
+		/**
+		 * The input.txt sample.
+		 */
+		SAMPLE {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				String[] amounts = { "22.75", "59.33", "34.22", "27.21", "17.09", "100.99" };
+				for (String amount : amounts) {
+					duePayments.add(PaymentAmount.parse(amount));
+				}
+				bankTransfer.setAmount(PaymentAmount.parse("74.06").getAmount());
+			}
+		},
+		RANDOM_10 {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				buildRandom(duePayments, bankTransfer, 10);
+			}
+		},
+		RANDOM_100 {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				buildRandom(duePayments, bankTransfer, 100);
+			}
+		},
+		RANDOM_1000 {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				buildRandom(duePayments, bankTransfer, 1000);
+			}
+		},
+		RANDOM_10000 {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				buildRandom(duePayments, bankTransfer, 10000);
+			}
+		},
+		/**
+		 * 1000 payments of 10 subscription prices.
+		 */
+		DUPLICATES {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				int[] prices = { 999, 1499, 1999, 2499, 2999, 4999, 7999, 9999, 14999, 19999 };
+				Random random = new Random(3);
+				for (int paymentIndex = 0; paymentIndex < 1000; paymentIndex++) {
+					duePayments.add(new PaymentAmount(prices[random.nextInt(prices.length)]));
+				}
+				bankTransfer.setAmount(123457);
+			}
+		},
+		/**
+		 * 40 random amounts, and a bank transfer above all of them but not reachable
+		 * (amounts multiple of 100, bank transfer not).
+		 */
+		NO_SOLUTION {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				Random random = new Random(5);
+				for (int paymentIndex = 0; paymentIndex < 40; paymentIndex++) {
+					duePayments.add(new PaymentAmount(100 * (1 + random.nextInt(500))));
+				}
+				bankTransfer.setAmount(500050);
+			}
+		},
+		/**
+		 * 26 large random amounts (between 2^24 and 2^25 cents) and a bank transfer of half their total:
+		 * the sums are sparse, so there is most likely no solution, and the memos and bounds don't help.
+		 */
+		ADVERSARIAL {
+			@Override
+			void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer) {
+				Random random = new Random(7);
+				long total = 0;
+				for (int paymentIndex = 0; paymentIndex < 26; paymentIndex++) {
+					int amount = (1 << 24) + random.nextInt(1 << 24);
+					duePayments.add(new PaymentAmount(amount));
+					total += amount;
+				}
+				bankTransfer.setAmount(total / 2);
+			}
+		};
+
+		abstract void build(List<PaymentAmount> duePayments, PaymentAmount bankTransfer);
+
+		// n random amounts; the bank transfer is the sum of every 4th one (at most 10000 dollars).
+		private static void buildRandom(List<PaymentAmount> duePayments, PaymentAmount bankTransfer, int size) {
+			Random random = new Random(size);
+			int maxAmount = Math.max(100, 2000000 / size);
+			int bankTransferAmount = 0;
+			for (int paymentIndex = 0; paymentIndex < size; paymentIndex++) {
+				int amount = 1 + random.nextInt(maxAmount);
+				duePayments.add(new PaymentAmount(amount));
+				if (paymentIndex % 4 == 0 && bankTransferAmount + amount <= 1000000) {
+					bankTransferAmount += amount;
+				}
+			}
+			bankTransfer.setAmount(bankTransferAmount);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 3 && "--run".equals(args[0])) {
+			run(PaymentCalculatorEngine.valueOf(args[1]), Workload.valueOf(args[2]));
+			return;
+		}
+
+		List<String> engines = new ArrayList<String>();
+		for (PaymentCalculatorEngine engine : PaymentCalculatorEngine.values()) {
+			engines.add(engine.name());
+		}
+		List<String> workloads = new ArrayList<String>();
+		for (Workload workload : Workload.values()) {
+			workloads.add(workload.name());
+		}
+		if (args.length >= 1) {
+			engines = Arrays.asList(args[0].toUpperCase().split(","));
+		}
+		if (args.length >= 2) {
+			workloads = Arrays.asList(args[1].toUpperCase().split(","));
+		}
+
+		System.out.println(String.format("%-20s %-14s %12s %10s %10s %10s %10s %14s %8s",
+				"engine", "workload", "ops/s", "p50 us", "p90 us", "p99 us", "max us", "alloc B/op", "gc ms"));
+		for (String engine : engines) {
+			for (String workload : workloads) {
+				fork(engine, workload);
+			}
+		}
+	}
+
+	// Run one (engine, workload) pair in a new JVM with the same classpath.
+	private static void fork(String engine, String workload) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder processBuilder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				PaymentCalculatorBenchmark.class.getName(), "--run", engine, workload);
+		processBuilder.redirectErrorStream(true);
+		Process process = processBuilder.start();
+		OutputCopier copier = new OutputCopier(process);
+		copier.start();
+
+		long deadline = System.currentTimeMillis() + FORK_TIMEOUT_MILLIS;
+		while (true) {
+			try {
+				process.exitValue();
+				break;
+			} catch (IllegalThreadStateException e) {
+				if (System.currentTimeMillis() > deadline) {
+					process.destroy();
+					System.out.println(String.format("%-20s %-14s %12s", engine, workload, "TIMEOUT"));
+					break;
+				}
+				Thread.sleep(50);
+			}
+		}
+		copier.join(1000);
+	}
+
+	// Measure one (engine, workload) pair in this JVM.
+	private static void run(PaymentCalculatorEngine engine, Workload workload) {
+		IFindPaymentCalculator calculator = engine.createCalculator();
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		PaymentAmount bankTransfer = new PaymentAmount();
+		workload.build(duePayments, bankTransfer);
+
+		try {
+			// Warm-up.
+			long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+			while (System.nanoTime() < warmupEnd) {
+				consume(calculator.findPayments(bankTransfer, duePayments));
+			}
+
+			// Measurement.
+			long[] latencies = new long[MAX_OPERATIONS];
+			int nbOperations = 0;
+			long gcMillis = gcMillis();
+			long allocatedBytes = allocatedBytes();
+			long start = System.nanoTime();
+			long measurementEnd = start + MEASUREMENT_NANOS;
+			long end = start;
+			while (end < measurementEnd && nbOperations < MAX_OPERATIONS) {
+				long operationStart = end;
+				consume(calculator.findPayments(bankTransfer, duePayments));
+				end = System.nanoTime();
+				latencies[nbOperations++] = end - operationStart;
+			}
+			allocatedBytes = allocatedBytes() - allocatedBytes;
+			gcMillis = gcMillis() - gcMillis;
+
+			Arrays.sort(latencies, 0, nbOperations);
+			System.out.println(String.format("%-20s %-14s %12.1f %10.1f %10.1f %10.1f %10.1f %14s %8d",
+					engine, workload,
+					nbOperations * 1e9 / (end - start),
+					percentile(latencies, nbOperations, 0.50),
+					percentile(latencies, nbOperations, 0.90),
+					percentile(latencies, nbOperations, 0.99),
+					latencies[nbOperations - 1] / 1000.0,
+					allocatedBytes < 0 ? "n/a" : String.valueOf(allocatedBytes / nbOperations),
+					gcMillis));
+		} catch (PaymentException e) {
+			System.out.println(String.format("%-20s %-14s %12s (%s)", engine, workload, "N/A", e.getMessage()));
+		} catch (StackOverflowError e) {
+			System.out.println(String.format("%-20s %-14s %12s (%s)", engine, workload, "ERROR", e));
+		}
+	}
+
+	private static void consume(List<PaymentAmount> payments) {
+		sink += payments == null ? -1 : payments.size();
+	}
+
+	private static double percentile(long[] sortedLatencies, int size, double percentile) {
+		int index = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+		return sortedLatencies[Math.max(0, index)] / 1000.0;
+	}
+
+	// Bytes allocated by the current thread (-1 if not supported by the JVM).
+	private static long allocatedBytes() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long gcMillis() {
+		long gcMillis = 0;
+		for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcMillis += Math.max(0, gcBean.getCollectionTime());
+		}
+		return gcMillis;
+	}
+
+	/**
+	 * Copy the output of a forked JVM.
+	 */
+	private static class OutputCopier extends Thread {
+		private final Process process;
+
+		OutputCopier(Process process) {
+			this.process = process;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					System.out.println(line);
+				}
+			} catch (IOException e) {
+				// Process destroyed.
+			} finally {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// Nothing more to do.
+				}
+			}
+		}
+	}
+}
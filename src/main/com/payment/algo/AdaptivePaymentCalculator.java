@@ -0,0 +1,337 @@
+package com.payment.algo;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.payment.algo.PaymentSearchResult.Outcome;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Implementation of the calculator interface which chooses the engine of each call with a simple cost model,
+ * on the useful due payments (n of them, d distinct amounts, their gcd) and the max sum in cents:
+ * <ul>
+ * <li>DYNAMIC_PROGRAMMING: n * max sum / 64 word operations, up to maxDynamicTarget cents</li>
+ * <li>MEET_IN_THE_MIDDLE: 2^(n/2) subset sums, up to its max number of payments</li>
+ * <li>SEARCH: a node per subset of distinct amounts, at most n * (max sum / gcd) failed states</li>
+ * <li>MULTISET: the same subsets, at most d * (max sum / gcd) failed states</li>
+ * </ul>
+ * The cheapest estimate wins. Only the search supports negative amounts, and the closest match is taken
+ * from the reachable sums or the subset sums, else from the closest search of the search engine (see {@link ClosestPaymentCalculator}).
+ * The choice is logged (INFO), and can be overridden per call.
+ * The estimate of the search is a worst case, while a bank transfer with many solutions is usually found in a few nodes:
+ * when the subset sums win, a search limited to half their cost runs first.
+ * With a budget, the search also replaces the multiset search, which can't be stopped.
+ *
+ */
+public class AdaptivePaymentCalculator implements IBudgetedFindPaymentCalculator, IMeteredFindPaymentCalculator {
+
+	// Cost of a node or a subset sum, compared to a word operation of the reachable sums.
+	private static final double SEARCH_NODE_COST = 4;
+	private static final double MULTISET_NODE_COST = 8;
+	private static final double SUBSET_SUM_COST = 3;
+
+	// Share of the cost of the subset sums given to the search which runs first.
+	private static final double RACE_SHARE = 0.5;
+
+	// Candidates by order of preference at equal cost.
+	private static final PaymentCalculatorEngine[] CANDIDATES = { PaymentCalculatorEngine.DYNAMIC_PROGRAMMING, PaymentCalculatorEngine.SEARCH,
+			PaymentCalculatorEngine.MULTISET, PaymentCalculatorEngine.MEET_IN_THE_MIDDLE };
+
+	/**
+	 * Logger
+	 */
+	private static Logger logger = Logger.getLogger(AdaptivePaymentCalculator.class.getSimpleName());
+
+	private final int maxDynamicTarget;
+	private final FindPaymentCalculator searchCalculator = new FindPaymentCalculator();
+	private final MeetInTheMiddlePaymentCalculator meetInTheMiddleCalculator = new MeetInTheMiddlePaymentCalculator();
+	// Runs the search limited to a share of the cost of the subset sums (not metered: the call is reported once).
+	private final FindPaymentCalculator raceCalculator = new FindPaymentCalculator();
+	private final Map<PaymentCalculatorEngine, IFindPaymentCalculator> calculators = new EnumMap<PaymentCalculatorEngine, IFindPaymentCalculator>(
+			PaymentCalculatorEngine.class);
+
+	// Statistics receiver (null when disabled).
+	private volatile PaymentMetrics metrics;
+
+	public AdaptivePaymentCalculator() {
+		this(DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET);
+	}
+
+	/**
+	 * @param maxDynamicTarget max bank transfer in cents answered by the reachable sums
+	 */
+	public AdaptivePaymentCalculator(int maxDynamicTarget) {
+		super();
+		this.maxDynamicTarget = maxDynamicTarget;
+		calculators.put(PaymentCalculatorEngine.SEARCH, searchCalculator);
+		calculators.put(PaymentCalculatorEngine.DYNAMIC_PROGRAMMING, new DynamicProgrammingPaymentCalculator(maxDynamicTarget));
+		calculators.put(PaymentCalculatorEngine.MEET_IN_THE_MIDDLE, meetInTheMiddleCalculator);
+		calculators.put(PaymentCalculatorEngine.MULTISET, new MultisetPaymentCalculator());
+		calculators.put(PaymentCalculatorEngine.PARALLEL, new ParallelPaymentCalculator());
+	}
+
+	public int getMaxDynamicTarget() {
+		return maxDynamicTarget;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		return findPayments(bankTransfer, duePayments, PaymentCalculatorEngine.ADAPTIVE);
+	}
+
+	/**
+	 * Search for a list of due payments for which the sum is equal to the bank transfer, with the given engine.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param engine engine to use (null or ADAPTIVE to choose it)
+	 * @return foundPayments (null if no solution)
+	 * @throws PaymentException
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, PaymentCalculatorEngine engine)
+			throws PaymentException {
+		if (engine == null || engine == PaymentCalculatorEngine.ADAPTIVE) {
+			PaymentSearchResult searchResult = find(bankTransfer, duePayments, null);
+			if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+				// Only an interruption stops an unlimited search.
+				throw new PaymentException("Search interrupted");
+			}
+			return searchResult.getPayments();
+		}
+		IFindPaymentCalculator calculator = calculators.get(engine);
+		long startTime = System.nanoTime();
+		List<PaymentAmount> foundPayments = calculator.findPayments(bankTransfer, duePayments);
+		if (!(calculator instanceof IMeteredFindPaymentCalculator)) {
+			report(bankTransfer, duePayments, outcome(foundPayments), 0, startTime);
+		}
+		return foundPayments;
+	}
+
+	/**
+	 * Interface implementation: the multiset search has no budget, the search replaces it,
+	 * and the reachable sums or the subset sums (bounded by their limits) run once chosen.
+	 */
+	public PaymentSearchResult findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, SearchBudget budget) throws PaymentException {
+		// Validate parameters.
+		if (budget == null) {
+			throw new PaymentException("No search budget");
+		}
+
+		return find(bankTransfer, duePayments, budget);
+	}
+
+	// Search with the chosen engine, within the budget (null for no limit).
+	private PaymentSearchResult find(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, SearchBudget budget) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+
+		long startTime = System.nanoTime();
+		double[] costs = new double[PaymentCalculatorEngine.values().length];
+		PaymentCalculatorEngine engine = choose(bankTransfer, duePayments, bankTransfer.getAmount(), true, costs);
+		if (engine == PaymentCalculatorEngine.SEARCH || (engine == PaymentCalculatorEngine.MULTISET && budget != null)) {
+			return searchCalculator.findPayments(bankTransfer, duePayments, budget != null ? budget : SearchBudget.UNLIMITED);
+		}
+
+		// The search runs first, limited to a share of the cost of the subset sums.
+		long raceNodes = 0;
+		if (engine == PaymentCalculatorEngine.MEET_IN_THE_MIDDLE) {
+			long maxNodes = (long) (costs[engine.ordinal()] * RACE_SHARE / SEARCH_NODE_COST) + 1;
+			SearchBudget raceBudget = budget == null ? new SearchBudget(0, maxNodes, null) : new SearchBudget(budget.getTimeoutMillis(),
+					budget.getMaxNodes() > 0 ? Math.min(budget.getMaxNodes(), maxNodes) : maxNodes, budget.getCancellationToken());
+			PaymentSearchResult searchResult = raceCalculator.findPayments(bankTransfer, duePayments, raceBudget);
+			raceNodes = searchResult.getExploredNodes();
+			if (searchResult.getOutcome() != Outcome.GAVE_UP || raceNodes <= maxNodes) {
+				// Solved, or the budget of the call ran out.
+				report(bankTransfer, duePayments, searchResult.getOutcome(), raceNodes, startTime);
+				return searchResult;
+			}
+
+			// Log.
+			if (logger.isLoggable(Level.INFO)) {
+				logger.log(Level.INFO, "Search gave up after " + raceNodes + " nodes for bank transfer: " + bankTransfer);
+			}
+		}
+
+		IFindPaymentCalculator calculator = calculators.get(engine);
+		List<PaymentAmount> foundPayments = calculator.findPayments(bankTransfer, duePayments);
+		if (!(calculator instanceof IMeteredFindPaymentCalculator)) {
+			report(bankTransfer, duePayments, outcome(foundPayments), raceNodes, startTime);
+		}
+		return new PaymentSearchResult(outcome(foundPayments), foundPayments, foundPayments != null ? bankTransfer : null, raceNodes);
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		return findClosestPayments(bankTransfer, duePayments, toleranceCents, PaymentCalculatorEngine.ADAPTIVE);
+	}
+
+	/**
+	 * Search for a list of due payments for which the sum is the closest to the bank transfer, with the given engine.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents
+	 * @param engine engine to use (null or ADAPTIVE to choose it)
+	 * @return foundPayments (null if no sum within the tolerance)
+	 * @throws PaymentException
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents,
+			PaymentCalculatorEngine engine) throws PaymentException {
+		if (engine == null || engine == PaymentCalculatorEngine.ADAPTIVE) {
+			engine = chooseClosestEngine(bankTransfer, duePayments, toleranceCents);
+		}
+		IFindPaymentCalculator calculator = calculators.get(engine);
+		long startTime = System.nanoTime();
+		List<PaymentAmount> foundPayments = calculator.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+		if (!(calculator instanceof IMeteredFindPaymentCalculator)) {
+			report(bankTransfer, duePayments, outcome(foundPayments), 0, startTime);
+		}
+		return foundPayments;
+	}
+
+	/**
+	 * Interface implementation: only the closest search of the search engine uses the budget,
+	 * the reachable sums and the subset sums are bounded by their limits.
+	 */
+	public PaymentSearchResult findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents, SearchBudget budget)
+			throws PaymentException {
+		// Validate parameters.
+		if (budget == null) {
+			throw new PaymentException("No search budget");
+		}
+
+		PaymentCalculatorEngine engine = chooseClosestEngine(bankTransfer, duePayments, toleranceCents);
+		if (engine == PaymentCalculatorEngine.SEARCH) {
+			return searchCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents, budget);
+		}
+		return ClosestPaymentCalculator.toResult(findClosestPayments(bankTransfer, duePayments, toleranceCents, engine), false, 0);
+	}
+
+	/**
+	 * Return the engine of the lowest estimated cost for an exact match.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @return engine
+	 * @throws PaymentException
+	 */
+	public PaymentCalculatorEngine chooseEngine(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+
+		return choose(bankTransfer, duePayments, bankTransfer.getAmount(), true, new double[PaymentCalculatorEngine.values().length]);
+	}
+
+	/**
+	 * Return the engine of the lowest estimated cost for a closest match (the search above the limits of the other ones).
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents
+	 * @return engine
+	 * @throws PaymentException
+	 */
+	public PaymentCalculatorEngine chooseClosestEngine(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents)
+			throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
+
+		return choose(bankTransfer, duePayments, PaymentArrays.saturatedAdd(Math.max(bankTransfer.getAmount(), 0), toleranceCents), false,
+				new double[PaymentCalculatorEngine.values().length]);
+	}
+
+	// Fill the estimated costs by engine, and return the cheapest engine.
+	private PaymentCalculatorEngine choose(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, long maxSum, boolean exact, double[] costs) {
+		// Useful due payments: all the non-zero ones with negative amounts, else the ones up to the max sum.
+		long[] cents = PaymentArrays.toCents(duePayments);
+		boolean negative = false;
+		for (long amount : cents) {
+			negative |= amount < 0;
+		}
+		int[] indexes = negative ? PaymentArrays.sortByDecreasingAmount(cents, Long.MIN_VALUE, Long.MAX_VALUE)
+				: PaymentArrays.sortByDecreasingAmount(cents, maxSum);
+		int nbItems = indexes.length;
+		long[] items = new long[nbItems];
+		for (int index = 0; index < nbItems; index++) {
+			items[index] = cents[indexes[index]];
+		}
+
+		// Subsets of distinct amounts: product of (count + 1) over the distinct amounts.
+		double nbSubsets = 1;
+		int nbDistinct = 0;
+		for (int index = 0; index < nbItems; ) {
+			int count = 1;
+			while (index + count < nbItems && items[index + count] == items[index]) {
+				count++;
+			}
+			nbSubsets *= count + 1;
+			nbDistinct++;
+			index += count;
+		}
+		long gcd = Math.max(PaymentArrays.gcd(items), 1);
+		double nbStates = negative ? Double.POSITIVE_INFINITY : (double) Math.max(maxSum, 0) / gcd + 1;
+
+		// Estimated costs (infinite if the engine does not apply).
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		if (!negative && maxSum >= 0 && maxSum <= maxDynamicTarget) {
+			costs[PaymentCalculatorEngine.DYNAMIC_PROGRAMMING.ordinal()] = (nbItems + 1) * (maxSum / 64.0 + 1);
+		}
+		if (!negative && nbItems <= meetInTheMiddleCalculator.getMaxPayments()) {
+			costs[PaymentCalculatorEngine.MEET_IN_THE_MIDDLE.ordinal()] = SUBSET_SUM_COST * Math.pow(2, (nbItems + 1) / 2);
+		}
+		if (exact) {
+			costs[PaymentCalculatorEngine.SEARCH.ordinal()] = SEARCH_NODE_COST * Math.min(nbSubsets, nbItems * nbStates);
+			if (!negative) {
+				costs[PaymentCalculatorEngine.MULTISET.ordinal()] = MULTISET_NODE_COST * Math.min(nbSubsets, nbDistinct * nbStates);
+			}
+		}
+
+		// The cheapest one (by default the search, which also has no limit for a closest match).
+		PaymentCalculatorEngine engine = PaymentCalculatorEngine.SEARCH;
+		for (PaymentCalculatorEngine candidate : CANDIDATES) {
+			if (costs[candidate.ordinal()] < costs[engine.ordinal()]) {
+				engine = candidate;
+			}
+		}
+
+		// Log.
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Engine " + engine + " chosen for bank transfer: " + bankTransfer + ", " + nbItems + " useful due payments ("
+					+ nbDistinct + " distinct amounts, gcd " + gcd + "), estimated costs: " + Arrays.toString(costs));
+		}
+		return engine;
+	}
+
+	/**
+	 * Interface implementation: the metered engines report their own statistics,
+	 * the outcome and duration of the calls to the other ones are reported here.
+	 */
+	public void setMetrics(PaymentMetrics metrics) {
+		this.metrics = metrics;
+		for (IFindPaymentCalculator calculator : calculators.values()) {
+			if (calculator instanceof IMeteredFindPaymentCalculator) {
+				((IMeteredFindPaymentCalculator) calculator).setMetrics(metrics);
+			}
+		}
+	}
+
+	private void report(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, Outcome outcome, long nodes, long startTime) {
+		PaymentMetrics currentMetrics = metrics;
+		if (currentMetrics != null) {
+			currentMetrics.searchCompleted(new SearchStatistics(bankTransfer.getAmount(), duePayments.size(), outcome, nodes, 0, 0, 0, 0, 0,
+					System.nanoTime() - startTime));
+		}
+	}
+
+	private static Outcome outcome(List<PaymentAmount> foundPayments) {
+		return foundPayments != null ? Outcome.FOUND : Outcome.PROVEN_NO_SOLUTION;
+	}
+}
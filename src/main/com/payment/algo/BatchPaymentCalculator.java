@@ -0,0 +1,117 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Find the due payments of several bank transfers against the same due payments list.
+ * The sums reachable by the due payments are computed once (up to the highest bank transfer)
+ * and each bank transfer is answered from them.
+ *
+ */
+public class BatchPaymentCalculator {
+
+	private final int maxTarget;
+
+	public BatchPaymentCalculator() {
+		this(DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET);
+	}
+
+	/**
+	 * @param maxTarget max bank transfer in cents (the memory used is about 4 bytes per cent)
+	 */
+	public BatchPaymentCalculator(int maxTarget) {
+		super();
+		this.maxTarget = maxTarget;
+	}
+
+	/**
+	 * Return, for each bank transfer, a list of due payments for which the sum is equal to the bank transfer.
+	 * @param bankTransfers
+	 * @param duePayments
+	 * @param exclusive true if a due payment can't be used for two bank transfers
+	 *        (the bank transfers are then served in the order of the list)
+	 * @return found payments of each bank transfer (null element when no solution)
+	 * @throws PaymentException
+	 */
+	public List<List<PaymentAmount>> findPayments(List<PaymentAmount> bankTransfers, List<PaymentAmount> duePayments, boolean exclusive) throws PaymentException {
+		// Validate parameters.
+		if (bankTransfers == null) {
+			throw new PaymentException("No bank transfers");
+		}
+		if (duePayments == null) {
+			throw new PaymentException("No due payments");
+		}
+		int maxBankTransfer = 0;
+		for (PaymentAmount bankTransfer : bankTransfers) {
+			PaymentArrays.validate(bankTransfer, duePayments);
+			if (bankTransfer.getAmount() > maxTarget) {
+				throw new PaymentException("Bank transfer " + bankTransfer + " is above max amount " + PaymentAmount.valueOf(maxTarget) + " for this calculator");
+			}
+			maxBankTransfer = (int) Math.max(maxBankTransfer, bankTransfer.getAmount());
+		}
+
+		long[] longCents = PaymentArrays.toCents(duePayments);
+		for (int paymentIndex = 0; paymentIndex < longCents.length; paymentIndex++) {
+			if (longCents[paymentIndex] < 0) {
+				throw new PaymentException("Negative due payment " + duePayments.get(paymentIndex) + " is not supported");
+			}
+		}
+		int[] cents = PaymentArrays.toIntCents(longCents);
+
+		// Reachable sums of all the due payments.
+		boolean[] allocated = new boolean[cents.length];
+		ReachableSums sums = buildSums(cents, allocated, maxBankTransfer);
+
+		List<List<PaymentAmount>> foundPayments = new ArrayList<List<PaymentAmount>>(bankTransfers.size());
+		for (int transferIndex = 0; transferIndex < bankTransfers.size(); transferIndex++) {
+			long target = bankTransfers.get(transferIndex).getAmount();
+			int[] indexes = target < 0 ? null : sums.reconstruct((int) target, cents);
+
+			if (exclusive && indexes != null && isAllocated(indexes, allocated)) {
+				// Rebuild the sums without the payments allocated to the previous bank transfers.
+				int maxRemainingTransfer = 0;
+				for (int remainingIndex = transferIndex; remainingIndex < bankTransfers.size(); remainingIndex++) {
+					maxRemainingTransfer = (int) Math.max(maxRemainingTransfer, bankTransfers.get(remainingIndex).getAmount());
+				}
+				sums = buildSums(cents, allocated, maxRemainingTransfer);
+				indexes = sums.reconstruct((int) target, cents);
+			}
+
+			if (indexes == null) {
+				// No solution.
+				foundPayments.add(null);
+			} else {
+				if (exclusive) {
+					for (int index : indexes) {
+						allocated[index] = true;
+					}
+				}
+				foundPayments.add(PaymentArrays.toPayments(duePayments, indexes, indexes.length));
+			}
+		}
+		return foundPayments;
+	}
+
+	private static ReachableSums buildSums(int[] cents, boolean[] allocated, int maxSum) {
+		ReachableSums sums = new ReachableSums(maxSum);
+		for (int paymentIndex = 0; paymentIndex < cents.length; paymentIndex++) {
+			if (!allocated[paymentIndex]) {
+				sums.add(paymentIndex, cents[paymentIndex]);
+			}
+		}
+		return sums;
+	}
+
+	private static boolean isAllocated(int[] indexes, boolean[] allocated) {
+		for (int index : indexes) {
+			if (allocated[index]) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
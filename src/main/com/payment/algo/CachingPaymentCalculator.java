@@ -0,0 +1,206 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Calculator decorator remembering the results of another calculator, for the transfers submitted
+ * again against an unchanged ledger. The key is the multiset of the due payments (sorted cents, with
+ * their fingerprint as hash), the bank transfer and the tolerance, so the order of the due payments does
+ * not matter. The solutions and the "no solution" results are both remembered; the errors are not.
+ * <p>
+ * The least recently used entry is evicted above maxEntries, and an entry older than timeToLive is
+ * ignored. On a hit, the payments are taken from the given due payments list (same amounts as the
+ * remembered solution). Thread-safe if the decorated calculator is.
+ *
+ */
+public class CachingPaymentCalculator implements IFindPaymentCalculator {
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+	public static final long DEFAULT_TIME_TO_LIVE = 10 * 60 * 1000L;
+
+	private final IFindPaymentCalculator calculator;
+	private final long timeToLive;
+	private final Map<Key, CachedResult> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public CachingPaymentCalculator(IFindPaymentCalculator calculator) {
+		this(calculator, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * @param calculator decorated calculator
+	 * @param maxEntries max number of results remembered
+	 * @param timeToLive max age of a result in milliseconds
+	 */
+	public CachingPaymentCalculator(IFindPaymentCalculator calculator, final int maxEntries, long timeToLive) {
+		super();
+		this.calculator = calculator;
+		this.timeToLive = timeToLive;
+		this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+
+		Key key = new Key(PaymentArrays.toCents(duePayments), bankTransfer.getAmount(), 0);
+		CachedResult result = get(key);
+		if (result != null) {
+			return result.toPayments(duePayments);
+		}
+		List<PaymentAmount> foundPayments = calculator.findPayments(bankTransfer, duePayments);
+		put(key, foundPayments);
+		return foundPayments;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+
+		Key key = new Key(PaymentArrays.toCents(duePayments), bankTransfer.getAmount(), toleranceCents);
+		CachedResult result = get(key);
+		if (result != null) {
+			return result.toPayments(duePayments);
+		}
+		List<PaymentAmount> foundPayments = calculator.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+		put(key, foundPayments);
+		return foundPayments;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Return the number of results remembered (including the expired ones not evicted yet).
+	 * @return size
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Forget all the results (the counters are kept).
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	private synchronized CachedResult get(Key key) {
+		CachedResult result = entries.get(key);
+		if (result != null && System.currentTimeMillis() - result.creationTime > timeToLive) {
+			// Expired.
+			entries.remove(key);
+			result = null;
+		}
+		if (result != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+
+	private synchronized void put(Key key, List<PaymentAmount> foundPayments) {
+		entries.put(key, new CachedResult(foundPayments));
+	}
+
+	/**
+	 * Due payments multiset, bank transfer and tolerance.
+	 */
+	private static final class Key {
+		private final long[] sortedCents;
+		private final long bankTransfer;
+		private final int toleranceCents;
+		private final int hash;
+
+		Key(long[] cents, long bankTransfer, int toleranceCents) {
+			Arrays.sort(cents);
+			this.sortedCents = cents;
+			this.bankTransfer = bankTransfer;
+			this.toleranceCents = toleranceCents;
+			long fingerprint = 0;
+			for (long amount : cents) {
+				fingerprint += PaymentMemo.hash(amount);
+			}
+			fingerprint = fingerprint * 31 + PaymentMemo.hash(bankTransfer) + toleranceCents;
+			this.hash = (int) (fingerprint ^ (fingerprint >>> 32));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash == other.hash && bankTransfer == other.bankTransfer && toleranceCents == other.toleranceCents
+					&& Arrays.equals(sortedCents, other.sortedCents);
+		}
+	}
+
+	/**
+	 * Amounts of a solution (null if no solution).
+	 */
+	private static final class CachedResult {
+		private final long[] foundCents;
+		private final long creationTime = System.currentTimeMillis();
+
+		CachedResult(List<PaymentAmount> foundPayments) {
+			foundCents = foundPayments != null ? PaymentArrays.toCents(foundPayments) : null;
+		}
+
+		// Take the payments of the same amounts from the due payments, in their order.
+		List<PaymentAmount> toPayments(List<PaymentAmount> duePayments) {
+			if (foundCents == null) {
+				// No solution.
+				return null;
+			}
+			Map<Long, Integer> counts = new HashMap<Long, Integer>();
+			for (long amount : foundCents) {
+				Integer count = counts.get(amount);
+				counts.put(amount, count == null ? 1 : count + 1);
+			}
+			List<PaymentAmount> foundPayments = new ArrayList<PaymentAmount>(foundCents.length);
+			for (PaymentAmount duePayment : duePayments) {
+				Integer count = counts.get(duePayment.getAmount());
+				if (count != null && count > 0) {
+					foundPayments.add(duePayment);
+					counts.put(duePayment.getAmount(), count - 1);
+				}
+			}
+			return foundPayments;
+		}
+	}
+}
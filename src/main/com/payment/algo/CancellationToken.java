@@ -0,0 +1,17 @@
+package com.payment.algo;
+
+/**
+ * Token used to cancel a running search from another thread.
+ *
+ */
+public class CancellationToken {
+	private volatile boolean cancelled;
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,278 @@
+package com.payment.algo;
+
+import java.util.List;
+
+import com.payment.algo.PaymentSearchResult.Outcome;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Closest match of the search calculators: from the reachable sums (see {@link DynamicProgrammingPaymentCalculator})
+ * up to their max target, else from the subset sums (see {@link MeetInTheMiddlePaymentCalculator}) up to their max number
+ * of payments, else from a branch and bound search on the due payments, largest first.
+ * The search only keeps the sums which are closer than the best one found so far, stops on an exact match,
+ * and can be limited by a budget.
+ *
+ */
+final class ClosestPaymentCalculator {
+
+	// Next branch of a frame.
+	private static final byte INCLUDE = 0;
+	private static final byte EXCLUDE = 1;
+	private static final byte DONE = 2;
+
+	// Number of nodes between two checks of the duration and the cancellation.
+	private static final long CHECK_MASK = 1023;
+
+	private final DynamicProgrammingPaymentCalculator dynamicCalculator = new DynamicProgrammingPaymentCalculator();
+	private final MeetInTheMiddlePaymentCalculator meetInTheMiddleCalculator = new MeetInTheMiddlePaymentCalculator();
+
+	/**
+	 * Search for a list of due payments for which the sum is the closest to the bank transfer, within a tolerance
+	 * (see {@link IFindPaymentCalculator#findClosestPayments}).
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents
+	 * @return foundPayments (null if no sum within the tolerance)
+	 * @throws PaymentException
+	 */
+	List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		PaymentSearchResult searchResult = findClosestPayments(bankTransfer, duePayments, toleranceCents, SearchBudget.UNLIMITED);
+		if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+			// Only an interruption stops an unlimited search.
+			throw new PaymentException("Search interrupted");
+		}
+		return searchResult.getPayments();
+	}
+
+	/**
+	 * Same as {@link #findClosestPayments(PaymentAmount, List, int)}, within a budget (only the search uses it,
+	 * the reachable sums and the subset sums are bounded by their limits).
+	 * When the budget runs out, the outcome is GAVE_UP with the closest sum found so far within the tolerance (if any).
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents
+	 * @param budget
+	 * @return searchResult
+	 * @throws PaymentException
+	 */
+	PaymentSearchResult findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents, SearchBudget budget)
+			throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (budget == null) {
+			throw new PaymentException("No search budget");
+		}
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+
+		// No sum is above the total of the due payments.
+		long target = bankTransfer.getAmount();
+		long maxSum = target < 0 ? target + toleranceCents : PaymentArrays.saturatedAdd(target, toleranceCents);
+		maxSum = Math.min(maxSum, PaymentArrays.total(cents));
+		if (maxSum <= dynamicCalculator.getMaxTarget()) {
+			return toResult(dynamicCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents), false, 0);
+		}
+
+		int[] indexes = PaymentArrays.sortByDecreasingAmount(cents, maxSum);
+		if (indexes.length <= meetInTheMiddleCalculator.getMaxPayments()) {
+			return toResult(meetInTheMiddleCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents), false, 0);
+		}
+
+		Search search = new Search(budget);
+		indexes = search(cents, indexes, target, toleranceCents, search);
+		return toResult(indexes != null ? PaymentArrays.toPayments(duePayments, indexes, indexes.length) : null, search.gaveUp, search.nodes);
+	}
+
+	/**
+	 * Return the result of a closest match: the payments found (with their sum), none, or the closest sum only when the budget ran out.
+	 * @param payments
+	 * @param gaveUp
+	 * @param nodes
+	 * @return searchResult
+	 */
+	static PaymentSearchResult toResult(List<PaymentAmount> payments, boolean gaveUp, long nodes) {
+		PaymentAmount closestSum = null;
+		if (payments != null) {
+			long sum = 0;
+			for (PaymentAmount payment : payments) {
+				sum += payment.getAmount();
+			}
+			closestSum = PaymentAmount.valueOf(sum);
+		}
+		if (gaveUp) {
+			return new PaymentSearchResult(Outcome.GAVE_UP, null, closestSum, nodes);
+		}
+		return new PaymentSearchResult(payments != null ? Outcome.FOUND : Outcome.PROVEN_NO_SOLUTION, payments, closestSum, nodes);
+	}
+
+	// Iterative search, on an explicit stack of frames (at most items.length + 1), as in FindPaymentCalculator.
+	// The score of a sum is twice its distance to the bank transfer, plus one above it: the lowest score wins,
+	// so that the sum below the bank transfer is preferred at equal distance.
+	// A (index, sum) node whose subtree found nothing better is remembered: the best score only goes down.
+	// When the budget runs out, the best sum found so far is returned.
+	private static int[] search(long[] cents, int[] indexes, long target, int toleranceCents, Search search) {
+		int nbItems = indexes.length;
+		long[] items = new long[nbItems];
+		for (int index = 0; index < nbItems; index++) {
+			items[index] = cents[indexes[index]];
+		}
+		long[] remainingSums = new long[nbItems + 1];
+		for (int index = nbItems - 1; index >= 0; index--) {
+			remainingSums[index] = PaymentArrays.saturatedAdd(remainingSums[index + 1], items[index]);
+		}
+
+		// Best sum (none yet: any sum within the tolerance is better).
+		long bestScore = 2L * toleranceCents + 2;
+		int[] bestChosen = null;
+		long improvements = 0;
+		int[] chosen = new int[nbItems];
+		if (target >= -toleranceCents && target <= toleranceCents) {
+			// The empty sum.
+			bestScore = score(-target);
+			bestChosen = new int[0];
+		}
+
+		PaymentMemo failures = new PaymentMemo();
+		int[] frameIndexes = new int[nbItems + 1];
+		long[] frameSums = new long[nbItems + 1];
+		int[] frameNbChosen = new int[nbItems + 1];
+		long[] frameImprovements = new long[nbItems + 1];
+		byte[] frameBranches = new byte[nbItems + 1];
+		int depth = 0;
+		frameBranches[0] = nbItems > 0 ? INCLUDE : DONE;
+		while (depth >= 0 && bestScore > 0) {
+			// Check the budget.
+			if (++search.nodes > search.maxNodes || ((search.nodes & CHECK_MASK) == 0 && search.isOverBudget())) {
+				search.gaveUp = true;
+				break;
+			}
+			int index = frameIndexes[depth];
+			long sum = frameSums[depth];
+			int nbChosen = frameNbChosen[depth];
+
+			// Max sum which can improve the best one.
+			long maxAbove = (bestScore - 2) / 2;
+			long high = target < 0 ? target + maxAbove : PaymentArrays.saturatedAdd(target, maxAbove);
+			int nextIndex;
+			long nextSum;
+			int nextNbChosen;
+			if (frameBranches[depth] == INCLUDE) {
+				frameBranches[depth] = EXCLUDE;
+				if (items[index] > high - sum) {
+					continue;
+				}
+				nextIndex = index + 1;
+				nextSum = sum + items[index];
+				nextNbChosen = nbChosen + 1;
+				chosen[nbChosen] = index;
+
+				// Score of the new sum.
+				long distance = nextSum - target;
+				if (distance >= -toleranceCents && score(distance) < bestScore) {
+					bestScore = score(distance);
+					bestChosen = new int[nextNbChosen];
+					System.arraycopy(chosen, 0, bestChosen, 0, nextNbChosen);
+					improvements++;
+				}
+			} else if (frameBranches[depth] == EXCLUDE) {
+				frameBranches[depth] = DONE;
+
+				// Exclude the payment, and the next ones with the same amount.
+				nextIndex = index + 1;
+				while (nextIndex < nbItems && items[nextIndex] == items[index]) {
+					nextIndex++;
+				}
+				nextSum = sum;
+				nextNbChosen = nbChosen;
+			} else {
+				if (frameImprovements[depth] == improvements) {
+					failures.add(sum, index);
+				}
+				depth--;
+				continue;
+			}
+
+			// Skip the payments above the max sum (first index not above it).
+			int low = nextIndex;
+			int end = nbItems;
+			while (low < end) {
+				int middle = (low + end) >>> 1;
+				if (items[middle] > high - nextSum) {
+					low = middle + 1;
+				} else {
+					end = middle;
+				}
+			}
+			nextIndex = low;
+			if (nextIndex == nbItems) {
+				continue;
+			}
+
+			// Taking all the payments left is the closest sum of the subtree when not above the bank transfer.
+			long allSum = PaymentArrays.saturatedAdd(nextSum, remainingSums[nextIndex]);
+			if (allSum <= target) {
+				long distance = allSum - target;
+				if (distance >= -toleranceCents && score(distance) < bestScore) {
+					bestScore = score(distance);
+					bestChosen = new int[nextNbChosen + nbItems - nextIndex];
+					System.arraycopy(chosen, 0, bestChosen, 0, nextNbChosen);
+					for (int itemIndex = nextIndex; itemIndex < nbItems; itemIndex++) {
+						bestChosen[nextNbChosen + itemIndex - nextIndex] = itemIndex;
+					}
+					improvements++;
+				}
+				continue;
+			}
+
+			// Go down unless no sum of the subtree can improve the best one.
+			if (allSum >= target - (bestScore - 1) / 2 && !failures.contains(nextSum, nextIndex)) {
+				depth++;
+				frameIndexes[depth] = nextIndex;
+				frameSums[depth] = nextSum;
+				frameNbChosen[depth] = nextNbChosen;
+				frameImprovements[depth] = improvements;
+				frameBranches[depth] = INCLUDE;
+			}
+		}
+
+		if (bestChosen == null) {
+			return null;
+		}
+		int[] resultIndexes = new int[bestChosen.length];
+		for (int chosenIndex = 0; chosenIndex < bestChosen.length; chosenIndex++) {
+			resultIndexes[chosenIndex] = indexes[bestChosen[chosenIndex]];
+		}
+		return resultIndexes;
+	}
+
+	private static long score(long distance) {
+		return distance < 0 ? -2 * distance : (distance > 0 ? 2 * distance + 1 : 0);
+	}
+
+	/**
+	 * Budget of a search, with its explored nodes.
+	 */
+	private static class Search {
+		final long startTime = System.nanoTime();
+		final long timeout;
+		final long maxNodes;
+		final CancellationToken cancellationToken;
+		long nodes;
+		boolean gaveUp;
+
+		Search(SearchBudget budget) {
+			this.timeout = budget.getTimeoutMillis() * 1000000L;
+			this.maxNodes = budget.getMaxNodes() > 0 ? budget.getMaxNodes() : Long.MAX_VALUE;
+			this.cancellationToken = budget.getCancellationToken();
+		}
+
+		boolean isOverBudget() {
+			return (timeout > 0 && System.nanoTime() - startTime > timeout)
+					|| (cancellationToken != null && cancellationToken.isCancelled())
+					|| Thread.currentThread().isInterrupted();
+		}
+	}
+}
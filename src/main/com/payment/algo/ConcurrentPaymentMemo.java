@@ -0,0 +1,83 @@
+package com.payment.algo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of the (due payment index, bank transfer) pairs already known to have no solution,
+ * shared by the threads of a search.
+ * Lock-free fixed-size table: an entry is looked for in a window of PROBE_LIMIT slots,
+ * and when the window is full the first slot of the window is overwritten.
+ * Losing an entry only means that a failed state may be searched again.
+ * The pairs are packed in 64 bits: the pairs with an index from MAX_INDEX or an amount from MAX_AMOUNT
+ * are not remembered.
+ *
+ */
+final class ConcurrentPaymentMemo {
+	private static final int PROBE_LIMIT = 8;
+	private static final int AMOUNT_BITS = 40;
+	private static final int MAX_INDEX = 1 << (63 - AMOUNT_BITS);
+	private static final long MAX_AMOUNT = 1L << AMOUNT_BITS;
+
+	private final AtomicLongArray keys;
+	private final int mask;
+
+	/**
+	 * @param maxSize max number of entries kept
+	 */
+	ConcurrentPaymentMemo(int maxSize) {
+		int capacity = PROBE_LIMIT;
+		while (capacity < maxSize && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		this.keys = new AtomicLongArray(capacity);
+		this.mask = capacity - 1;
+	}
+
+	boolean contains(int index, long amount) {
+		if (index >= MAX_INDEX || amount >= MAX_AMOUNT) {
+			return false;
+		}
+		long key = key(index, amount);
+		int slot = slot(key);
+		for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+			long slotKey = keys.get(slot);
+			if (slotKey == key) {
+				return true;
+			}
+			if (slotKey == 0) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	void add(int index, long amount) {
+		if (index >= MAX_INDEX || amount >= MAX_AMOUNT) {
+			return;
+		}
+		long key = key(index, amount);
+		int firstSlot = slot(key);
+		int slot = firstSlot;
+		for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+			long slotKey = keys.get(slot);
+			if (slotKey == key || (slotKey == 0 && keys.compareAndSet(slot, 0, key))) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// Window full: overwrite.
+		keys.lazySet(firstSlot, key);
+	}
+
+	// Index in the high bits, amount (not negative) in the low bits, 0 is the empty slot.
+	private static long key(int index, long amount) {
+		return (((long) index << AMOUNT_BITS) | amount) + 1;
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,110 @@
+package com.payment.algo;
+
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Implementation of the calculator interface based on the sums reachable by the due payments.
+ * Runs in O(n * bank transfer / 64), the bank transfer (in cents) being bounded by maxTarget.
+ *
+ */
+public class DynamicProgrammingPaymentCalculator implements IFindPaymentCalculator {
+
+	/**
+	 * Default max bank transfer in cents (10000 dollars).
+	 */
+	public static final int DEFAULT_MAX_TARGET = 1000000;
+
+	private final int maxTarget;
+
+	public DynamicProgrammingPaymentCalculator() {
+		this(DEFAULT_MAX_TARGET);
+	}
+
+	/**
+	 * @param maxTarget max bank transfer in cents (the memory used is about 4 bytes per cent)
+	 */
+	public DynamicProgrammingPaymentCalculator(int maxTarget) {
+		super();
+		this.maxTarget = maxTarget;
+	}
+
+	public int getMaxTarget() {
+		return maxTarget;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		long[] longCents = PaymentArrays.toNonNegativeCents(duePayments);
+
+		long target = bankTransfer.getAmount();
+		if (target < 0) {
+			// No solution.
+			return null;
+		}
+		if (target > maxTarget) {
+			throw new PaymentException("Bank transfer " + bankTransfer + " is above max amount " + PaymentAmount.valueOf(maxTarget) + " for this calculator");
+		}
+
+		int[] cents = PaymentArrays.toIntCents(longCents);
+
+		// Add the due payments until the bank transfer is reached.
+		ReachableSums sums = new ReachableSums((int) target);
+		for (int paymentIndex = 0; paymentIndex < cents.length && !sums.isReachable(target); paymentIndex++) {
+			sums.add(paymentIndex, cents[paymentIndex]);
+		}
+
+		int[] indexes = sums.reconstruct((int) target, cents);
+		if (indexes == null) {
+			// No solution.
+			return null;
+		}
+		return PaymentArrays.toPayments(duePayments, indexes, indexes.length);
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
+
+		long target = bankTransfer.getAmount();
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+		int[] intCents = PaymentArrays.toIntCents(cents);
+
+		// No sum is above the total of the due payments.
+		long maxSum = target < 0 ? target + toleranceCents : PaymentArrays.saturatedAdd(target, toleranceCents);
+		maxSum = Math.min(maxSum, PaymentArrays.total(cents));
+		if (maxSum < 0 || maxSum < target - toleranceCents) {
+			// No solution.
+			return null;
+		}
+		if (maxSum > maxTarget) {
+			throw new PaymentException("Bank transfer " + bankTransfer + " with tolerance " + PaymentAmount.valueOf(toleranceCents) + " is above max amount " + PaymentAmount.valueOf(maxTarget) + " for this calculator");
+		}
+
+		// Add the due payments until the bank transfer is reached exactly.
+		ReachableSums sums = new ReachableSums((int) maxSum);
+		for (int paymentIndex = 0; paymentIndex < intCents.length && !sums.isReachable(target); paymentIndex++) {
+			sums.add(paymentIndex, intCents[paymentIndex]);
+		}
+
+		int closestSum = sums.closest(target, toleranceCents);
+		if (closestSum < 0) {
+			// No solution.
+			return null;
+		}
+		int[] indexes = sums.reconstruct(closestSum, intCents);
+		return PaymentArrays.toPayments(duePayments, indexes, indexes.length);
+	}
+}
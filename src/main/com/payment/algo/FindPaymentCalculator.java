@@ -1,15 +1,13 @@
 package com.payment.algo;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.payment.algo.PaymentSearchResult.Outcome;
 import com.payment.domain.PaymentAmount;
 import com.payment.exception.PaymentException;
 
@@ -17,9 +15,15 @@ import com.payment.exception.PaymentException;
  * This class is an implementation of the calculator interface
  *
  */
-public class FindPaymentCalculator implements IFindPaymentCalculator {
+public class FindPaymentCalculator implements IBudgetedFindPaymentCalculator, IMeteredFindPaymentCalculator {
 	
-	private static final PaymentAmount ZERO = new PaymentAmount(0);
+	// The duration, cancellation and interruption are checked every 1024 nodes.
+	private static final long CHECK_MASK = 1023;
+	
+	// Next branch of a frame.
+	private static final byte INCLUDE = 0;
+	private static final byte EXCLUDE = 1;
+	private static final byte DONE = 2;
 	
 	/**
 	 * Logger
@@ -30,191 +34,345 @@ public class FindPaymentCalculator implements IFindPaymentCalculator {
 		logger.setLevel(Level.WARNING);
 	}
 
+	private final int maxMemoSize;
+
+	// Statistics receiver (null when disabled).
+	private volatile PaymentMetrics metrics;
+
+	// Answers the closest match requests.
+	private final ClosestPaymentCalculator closestCalculator = new ClosestPaymentCalculator();
+
 	public FindPaymentCalculator() {
+		this(PaymentMemo.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxMemoSize max number of failed searches remembered (the oldest ones are evicted)
+	 */
+	public FindPaymentCalculator(int maxMemoSize) {
 		super();
+		this.maxMemoSize = maxMemoSize;
 	}
 	
 	/**
 	 * Interface implementation
 	 */
 	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
-		// Validate parameters.
-		if (bankTransfer == null) {
-			throw new PaymentException("No bank transfer");
+		PaymentSearchResult searchResult = findPayments(bankTransfer, duePayments, SearchBudget.UNLIMITED);
+		if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+			// Only an interruption stops an unlimited search.
+			throw new PaymentException("Search interrupted");
 		}
-		if (duePayments == null) {
-			throw new PaymentException("No due payments");
-		}
-		
-		// Duration.
-		long startTime = new Date().getTime();
+		return searchResult.getPayments();
+	}
 
-		// Sort the due payments.
-		Collections.sort(duePayments, new Comparator<PaymentAmount>() {
+	/**
+	 * Interface implementation: the closest sum is taken from the reachable sums
+	 * (see {@link DynamicProgrammingPaymentCalculator}), or searched above their max target.
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		PaymentSearchResult searchResult = findClosestPayments(bankTransfer, duePayments, toleranceCents, SearchBudget.UNLIMITED);
+		if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+			// Only an interruption stops an unlimited search.
+			throw new PaymentException("Search interrupted");
+		}
+		return searchResult.getPayments();
+	}
 
-			@Override
-			public int compare(PaymentAmount arg0, PaymentAmount arg1) {
-				return arg0.compareTo(arg1);
-			}
-		});
+	/**
+	 * Interface implementation: only the search above the limits of the reachable sums and the subset sums uses the budget.
+	 */
+	public PaymentSearchResult findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents, SearchBudget budget)
+			throws PaymentException {
+		long startTime = System.nanoTime();
+		PaymentSearchResult searchResult = closestCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents, budget);
+		PaymentMetrics currentMetrics = metrics;
+		if (currentMetrics != null) {
+			currentMetrics.searchCompleted(new SearchStatistics(bankTransfer.getAmount(), duePayments.size(), searchResult.getOutcome(),
+					searchResult.getExploredNodes(), 0, 0, 0, 0, 0, System.nanoTime() - startTime));
+		}
+		return searchResult;
+	}
 
-		// Map to avoid calculating several times with the same values.
-		Map<PaymentAmountKey, List<PaymentAmount>> visitors = new HashMap<PaymentAmountKey, List<PaymentAmount>>();
-		
-		// Call recursive method. 
-		List<PaymentAmount> foundPayments = calculatePayments(bankTransfer, duePayments,visitors);
-	
-		// Duration.
-		long endTime = new Date().getTime();
-		long duration = (endTime - startTime);
-		
-		logger.log(Level.INFO, "Duration (in seconds): " + duration / 1000.0);
-		
-		return foundPayments;
+	/**
+	 * Interface implementation: the closest match requests only report their outcome, explored nodes and duration.
+	 */
+	public void setMetrics(PaymentMetrics metrics) {
+		this.metrics = metrics;
 	}
 	
-	// Recursive method.
-	private List<PaymentAmount> calculatePayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, Map<PaymentAmountKey, List<PaymentAmount>> visitors) throws PaymentException {
-		PaymentAmountKey paymentAmountKey = new PaymentAmountKey(bankTransfer, duePayments);
+	/**
+	 * Return the distinct lists of due payments for which the sum is equal to the bank transfer,
+	 * computed one by one as the iterator goes (see {@link MultisetPaymentCalculator#findAllPayments}).
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param limit max number of solutions (0 for no limit)
+	 * @param order
+	 * @return foundPayments iterator
+	 * @throws PaymentException
+	 */
+	public Iterator<List<PaymentAmount>> findAllPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int limit, SolutionOrder order) throws PaymentException {
+		return new MultisetPaymentCalculator(maxMemoSize).findAllPayments(bankTransfer, duePayments, limit, order);
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public PaymentSearchResult findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, SearchBudget budget) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (budget == null) {
+			throw new PaymentException("No search budget");
+		}
 		
-		if (visitors.containsKey(paymentAmountKey))
-			return visitors.get(paymentAmountKey);
+		// Duration.
+		long startTime = System.nanoTime();
+
+		// Work on the amounts in cents, sorted by decreasing amount (the due payments list is not changed),
+		// converted back to payment amounts only for the result.
+		long[] cents = PaymentArrays.toCents(duePayments);
+		Search search = new Search(cents, bankTransfer.getAmount(), maxMemoSize, budget);
 		
-		// Log.
-		if (logger.isLoggable(Level.INFO)) {
-			logger.log(Level.INFO, "Find payments for bank transfer: " + bankTransfer.toString() + " and due payments: " + duePayments.toString());
+		// Any sum of due payments is a multiple of their gcd.
+		long gcd = PaymentArrays.gcd(cents);
+		boolean divisible = !search.bounded || gcd == 0 || bankTransfer.getAmount() % gcd == 0;
+		if (!divisible) {
+			search.prunedBranches++;
 		}
-	
-		// ---------------------------------------------------------------------------------------------------
-		// 1- Iterate through the due payments to remove the too high amounts compared to the bank transfer.
-		// ---------------------------------------------------------------------------------------------------
-		int duePaymentSize = duePayments.size();
 		
-		// Get the sublist max index.
-		int maxIndex = -1;
-		for (int paymentIndex = duePaymentSize - 1; paymentIndex >= 0; paymentIndex--) {
-			if (duePayments.get(paymentIndex).compareTo(bankTransfer) <= 0) {
-				maxIndex = paymentIndex;
-				break;
+		// Call iterative method. 
+		PaymentSearchResult searchResult;
+		if (divisible && calculatePayments(search, bankTransfer.getAmount())) {
+			// The largest payment comes first.
+			List<PaymentAmount> foundPayments = new ArrayList<PaymentAmount>(search.resultSize);
+			for (int chosenIndex = 0; chosenIndex < search.resultSize; chosenIndex++) {
+				foundPayments.add(duePayments.get(search.indexes[search.chosen[chosenIndex]]));
 			}
-		}
-		
-		// Extract sublist.
-		List<PaymentAmount> filteredDuePayments;	
-		if (maxIndex < 0) {
-			filteredDuePayments = new ArrayList<PaymentAmount>();
-		} else if (maxIndex < duePaymentSize-1) {
-			filteredDuePayments = duePayments.subList(0, maxIndex + 1);
+			searchResult = new PaymentSearchResult(Outcome.FOUND, foundPayments, bankTransfer, search.nodes);
 		} else {
-			filteredDuePayments = duePayments;
+			PaymentAmount closestSum = PaymentAmount.valueOf(bankTransfer.getAmount() - search.closestRemaining);
+			Outcome outcome = search.gaveUp ? Outcome.GAVE_UP : Outcome.PROVEN_NO_SOLUTION;
+			searchResult = new PaymentSearchResult(outcome, null, closestSum, search.nodes);
 		}
 	
-		// Log.
+		// Duration and statistics.
+		long duration = System.nanoTime() - startTime;
 		if (logger.isLoggable(Level.INFO)) {
-			logger.log(Level.INFO, "Filtered list: " + filteredDuePayments.toString());
+			logger.log(Level.INFO, "Duration (in seconds): " + duration / 1000000000.0);
+		}
+		PaymentMetrics currentMetrics = metrics;
+		if (currentMetrics != null) {
+			currentMetrics.searchCompleted(new SearchStatistics(bankTransfer.getAmount(), duePayments.size(), searchResult.getOutcome(),
+					search.nodes, search.memoHits, search.memoMisses, search.failures.size(), search.prunedBranches, search.maxDepth, duration));
 		}
-	
-		// ---------------------------------------------------------------------------------------------------
-		// 2- Find the payments on the (n-1) sublists (all combinations).
-		// ---------------------------------------------------------------------------------------------------
-		int filteredDuePaymentsSize = filteredDuePayments.size();
 		
-		if (filteredDuePaymentsSize == 0) {
-			List<PaymentAmount> list;
+		return searchResult;
+	}
+	
+	// Iterative search, on an explicit stack of frames (at most items.length + 1).
+	// Each subset is reached once: the search only moves forward through search.items (largest first),
+	// including or excluding the payment at each index. The frame of a node holds its index, the bank transfer left,
+	// the number of payments chosen before it, and the next branch to try.
+	// A failed (index, bank transfer left) node is remembered, whatever the payments chosen before it.
+	private boolean calculatePayments(Search search, long bankTransfer) {
+		long[] items = search.items;
+		int nbItems = items.length;
+		int depth = 0;
+		int index = 0;
+		int nbChosen = 0;
+		while (true) {
+			// ---------------------------------------------------------------------------------------------------
+			// 1- Enter a new node: index, bankTransfer and nbChosen describe it.
+			// ---------------------------------------------------------------------------------------------------
 			
-			// Nothing more to do.
-			if (bankTransfer.equals(ZERO)) {
-				// It works.
-				list = new ArrayList<PaymentAmount>();
-			} else {
-				// No solution.
-				list = null;
+			// Check the budget, and keep the closest sum.
+			if (++search.nodes > search.maxNodes || ((search.nodes & CHECK_MASK) == 0 && search.isOverBudget())) {
+				search.gaveUp = true;
+			}
+			if (search.gaveUp) {
+				// Not a proven failure: nothing more to do in any frame.
+				return false;
+			}
+			search.updateClosest(bankTransfer);
+			if (depth > search.maxDepth) {
+				search.maxDepth = depth;
 			}
 			
-			visitors.put(paymentAmountKey, list);
-			return list;
+			// Log.
+			if (logger.isLoggable(Level.INFO)) {
+				logger.log(Level.INFO, "Find payments for bank transfer: " + bankTransfer + " and due payments: " + Arrays.toString(Arrays.copyOfRange(items, index, nbItems)));
+			}
 			
-		} else {
-			// Iterate through the due payments.
-			for (int paymentIndex = 0; paymentIndex < filteredDuePaymentsSize; paymentIndex++) {
-				// Find the (n-1) solution.
-				List<PaymentAmount> newDuePayments;
-				if (paymentIndex == 0) {
-					newDuePayments = filteredDuePayments.subList(1, filteredDuePaymentsSize);
-				} else if (paymentIndex == filteredDuePaymentsSize - 1) {
-					newDuePayments = filteredDuePayments.subList(0, filteredDuePaymentsSize - 1);
-				} else {
-					List<PaymentAmount> subListBefore = filteredDuePayments.subList(0, paymentIndex);
-					List<PaymentAmount> subListAfter = filteredDuePayments.subList(paymentIndex+1, filteredDuePaymentsSize);
-					newDuePayments = new ArrayList<PaymentAmount>(subListBefore);
-					newDuePayments.addAll(subListAfter);
+			boolean failed = false;
+			if (bankTransfer == 0) {
+				// It works.
+				search.resultSize = nbChosen;
+				return true;
+			}
+			if (search.bounded) {
+				// Without negative amounts, skip the payments above the bank transfer (first index not above it).
+				int low = index;
+				int high = nbItems;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (items[middle] > bankTransfer) {
+						low = middle + 1;
+					} else {
+						high = middle;
+					}
+				}
+				if (low > index) {
+					search.prunedBranches++;
+					index = low;
 				}
 				
-				PaymentAmount currentDuePayment = filteredDuePayments.get(paymentIndex);
-				
-				// Pass bank transfer minus current item.
-				PaymentAmount newBankTransfer = new PaymentAmount(bankTransfer.getAmount()-currentDuePayment.getAmount());
-				
-				List<PaymentAmount> result = calculatePayments(newBankTransfer, newDuePayments, visitors);
-		
-				if (result != null) {
-					// It works.
-					result.add(currentDuePayment);
-					visitors.put(paymentAmountKey, result);
-					return result;
+				// The payments left must sum at least to the bank transfer.
+				if (index == nbItems || search.remainingSums[index] < bankTransfer) {
+					// Taking all of them is the closest in this branch.
+					search.prunedBranches++;
+					search.updateClosest(bankTransfer - search.remainingSums[index]);
+					failed = true;
+				} else if (search.remainingSums[index] == bankTransfer) {
+					// It works with all of them.
+					for (int itemIndex = index; itemIndex < nbItems; itemIndex++) {
+						search.chosen[nbChosen++] = itemIndex;
+					}
+					search.resultSize = nbChosen;
+					return true;
+				}
+			} else if (index == nbItems) {
+				// No solution.
+				failed = true;
+			}
+			if (!failed) {
+				if (search.failures.contains(bankTransfer, index)) {
+					search.memoHits++;
+					failed = true;
+				} else {
+					search.memoMisses++;
+					search.frameIndexes[depth] = index;
+					search.frameBankTransfers[depth] = bankTransfer;
+					search.frameNbChosen[depth] = nbChosen;
+					search.frameBranches[depth] = INCLUDE;
+					depth++;
 				}
 			}
 			
-			visitors.put(paymentAmountKey, null);
-			return null;
+			// ---------------------------------------------------------------------------------------------------
+			// 2- Go to the next branch of the current frame, removing the frames with no branch left.
+			// ---------------------------------------------------------------------------------------------------
+			while (true) {
+				if (depth == 0) {
+					// No solution.
+					return false;
+				}
+				int frame = depth - 1;
+				index = search.frameIndexes[frame];
+				bankTransfer = search.frameBankTransfers[frame];
+				nbChosen = search.frameNbChosen[frame];
+				int branch = search.frameBranches[frame];
+				if (branch == INCLUDE) {
+					// Include the payment.
+					search.frameBranches[frame] = EXCLUDE;
+					search.chosen[nbChosen++] = index;
+					bankTransfer -= items[index];
+					index++;
+					break;
+				}
+				if (branch == EXCLUDE) {
+					// Exclude the payment, and the next ones with the same amount (already tried by the include branch).
+					search.frameBranches[frame] = DONE;
+					int nextIndex = index + 1;
+					while (nextIndex < nbItems && items[nextIndex] == items[index]) {
+						nextIndex++;
+					}
+					if (nextIndex > index + 1) {
+						search.prunedBranches++;
+					}
+					index = nextIndex;
+					break;
+				}
+				
+				// No solution from this frame.
+				search.failures.add(bankTransfer, index);
+				depth--;
+			}
 		}
 	}
 	
-	
-	private static class PaymentAmountKey {
-		PaymentAmount amount;
-		List<PaymentAmount> duePayments;
+	/**
+	 * State of a search: useful due payments in cents by decreasing amount, with their index in the due payments list,
+	 * the sums of the payments from each index, the stack and the budget.
+	 */
+	private static class Search {
+		final long[] items;
+		final int[] indexes;
+		final long[] remainingSums;
+		final int[] chosen;
+		// Stack of the iterative search, by depth.
+		final int[] frameIndexes;
+		final long[] frameBankTransfers;
+		final int[] frameNbChosen;
+		final byte[] frameBranches;
+		final PaymentMemo failures;
+		final boolean bounded;
+		final long startTime;
+		final long timeout;
+		final long maxNodes;
+		final CancellationToken cancellationToken;
+		int resultSize;
+		long nodes;
+		boolean gaveUp;
 		
+		// Statistics.
+		long memoHits;
+		long memoMisses;
+		long prunedBranches;
+		int maxDepth;
+		long closestRemaining;
 		
-		public PaymentAmountKey(PaymentAmount amount,
-				List<PaymentAmount> duePayments) {
-			super();
-			this.amount = amount;
-			this.duePayments = duePayments;
+		Search(long[] cents, long bankTransfer, int maxMemoSize, SearchBudget budget) {
+			// Without negative amounts, only the amounts up to the bank transfer can be part of the result.
+			boolean negative = false;
+			for (long amount : cents) {
+				negative |= amount < 0;
+			}
+			this.bounded = !negative;
+			this.indexes = bounded ? PaymentArrays.sortByDecreasingAmount(cents, bankTransfer) 
+					: PaymentArrays.sortByDecreasingAmount(cents, Long.MIN_VALUE, Long.MAX_VALUE);
+			int nbItems = indexes.length;
+			this.items = new long[nbItems];
+			for (int index = 0; index < nbItems; index++) {
+				items[index] = cents[indexes[index]];
+			}
+			this.remainingSums = new long[nbItems + 1];
+			for (int index = nbItems - 1; index >= 0; index--) {
+				remainingSums[index] = remainingSums[index + 1] + items[index];
+			}
+			this.chosen = new int[nbItems];
+			this.frameIndexes = new int[nbItems + 1];
+			this.frameBankTransfers = new long[nbItems + 1];
+			this.frameNbChosen = new int[nbItems + 1];
+			this.frameBranches = new byte[nbItems + 1];
+			this.failures = new PaymentMemo(maxMemoSize);
+			this.startTime = System.nanoTime();
+			this.timeout = budget.getTimeoutMillis() * 1000000L;
+			this.maxNodes = budget.getMaxNodes() > 0 ? budget.getMaxNodes() : Long.MAX_VALUE;
+			this.cancellationToken = budget.getCancellationToken();
+			this.closestRemaining = bankTransfer;
 		}
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result
-					+ ((amount == null) ? 0 : amount.hashCode());
-			result = prime * result
-					+ ((duePayments == null) ? 0 : duePayments.hashCode());
-			return result;
+		
+		void updateClosest(long remaining) {
+			if (Math.abs(remaining) < Math.abs(closestRemaining)) {
+				closestRemaining = remaining;
+			}
 		}
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			PaymentAmountKey other = (PaymentAmountKey) obj;
-			if (amount == null) {
-				if (other.amount != null)
-					return false;
-			} else if (!amount.equals(other.amount))
-				return false;
-			if (duePayments == null) {
-				if (other.duePayments != null)
-					return false;
-			} else if (!duePayments.equals(other.duePayments))
-				return false;
-			return true;
+		
+		boolean isOverBudget() {
+			return (timeout > 0 && System.nanoTime() - startTime > timeout) 
+					|| (cancellationToken != null && cancellationToken.isCancelled()) 
+					|| Thread.currentThread().isInterrupted();
 		}
 	}
 
 }
-
-	
\ No newline at end of file
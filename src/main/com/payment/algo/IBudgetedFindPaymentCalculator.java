@@ -0,0 +1,32 @@
+package com.payment.algo;
+
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+public interface IBudgetedFindPaymentCalculator extends IFindPaymentCalculator {
+	/**
+	 * Search for a list of due payments for which the sum is equal to the bank transfer, within a budget.
+	 * Never throws when the budget runs out: the outcome is then GAVE_UP, with the closest sum found so far.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param budget
+	 * @return searchResult
+	 * @throws PaymentException
+	 */
+	public PaymentSearchResult findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, SearchBudget budget) throws PaymentException;
+
+	/**
+	 * Search for a list of due payments for which the sum is the closest to the bank transfer, within a tolerance and a budget.
+	 * Never throws when the budget runs out: the outcome is then GAVE_UP, with the closest sum found so far within the tolerance (if any).
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents
+	 * @param budget
+	 * @return searchResult
+	 * @throws PaymentException
+	 */
+	public PaymentSearchResult findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents, SearchBudget budget)
+			throws PaymentException;
+}
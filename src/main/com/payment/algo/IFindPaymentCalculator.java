@@ -15,4 +15,15 @@ public interface IFindPaymentCalculator {
 	 * @throws PaymentException
 	 */
 	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException;
+
+	/**
+	 * return a list of due payments for which the sum is the closest to the bank transfer, within a tolerance.
+	 * An exact match is returned first; at equal distance, the sum below the bank transfer is preferred.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param toleranceCents max difference in cents between the sum and the bank transfer (0 for an exact match)
+	 * @return foundPayments (null if no sum within the tolerance)
+	 * @throws PaymentException
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException;
 }
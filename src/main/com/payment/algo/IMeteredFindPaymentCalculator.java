@@ -0,0 +1,10 @@
+package com.payment.algo;
+
+public interface IMeteredFindPaymentCalculator extends IFindPaymentCalculator {
+	/**
+	 * Report the statistics of each search to the given metrics.
+	 * When no metrics are set, the statistics are not built, so the searches cost nothing more.
+	 * @param metrics (null to disable)
+	 */
+	public void setMetrics(PaymentMetrics metrics);
+}
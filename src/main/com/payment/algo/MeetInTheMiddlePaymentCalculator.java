@@ -0,0 +1,191 @@
+package com.payment.algo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Implementation of the calculator interface which splits the due payments in two halves.
+ * The subset sums of each half are sorted (by merging) and joined with a two-pointer sweep.
+ * Runs in O(2^(n/2)) whatever the amounts, n being bounded by maxPayments.
+ *
+ */
+public class MeetInTheMiddlePaymentCalculator implements IFindPaymentCalculator {
+
+	/**
+	 * Default max number of due payments (2^22 sums per half).
+	 */
+	public static final int DEFAULT_MAX_PAYMENTS = 44;
+
+	private final int maxPayments;
+
+	public MeetInTheMiddlePaymentCalculator() {
+		this(DEFAULT_MAX_PAYMENTS);
+	}
+
+	/**
+	 * @param maxPayments max number of due payments which can be part of the result (at most 60)
+	 */
+	public MeetInTheMiddlePaymentCalculator(int maxPayments) {
+		super();
+		this.maxPayments = Math.min(maxPayments, 60);
+	}
+
+	public int getMaxPayments() {
+		return maxPayments;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		return findClosestPayments(bankTransfer, duePayments, 0);
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+
+		// The sums of the two halves are added: each must be at most half of the long range.
+		long target = bankTransfer.getAmount();
+		long maxSum = Math.min(target < 0 ? target + toleranceCents : PaymentArrays.saturatedAdd(target, toleranceCents), Long.MAX_VALUE / 2);
+		if (maxSum < 0) {
+			// No solution.
+			return null;
+		}
+
+		// Keep the due payments which can be part of the result (zero and too high amounts are useless).
+		int[] candidates = new int[cents.length];
+		int nbCandidates = 0;
+		for (int paymentIndex = 0; paymentIndex < cents.length; paymentIndex++) {
+			if (cents[paymentIndex] > 0 && cents[paymentIndex] <= maxSum) {
+				candidates[nbCandidates++] = paymentIndex;
+			}
+		}
+		if (nbCandidates > maxPayments) {
+			throw new PaymentException(nbCandidates + " due payments are above max " + maxPayments + " for this calculator");
+		}
+
+		// Subset sums of each half.
+		int firstHalfSize = nbCandidates / 2;
+		int[] firstHalf = Arrays.copyOfRange(candidates, 0, firstHalfSize);
+		int[] secondHalf = Arrays.copyOfRange(candidates, firstHalfSize, nbCandidates);
+		SubsetSums firstSums = new SubsetSums(cents, firstHalf, maxSum);
+		SubsetSums secondSums = new SubsetSums(cents, secondHalf, maxSum);
+
+		// Two-pointer sweep: first sums going up, second sums going down.
+		// Each skipped pair is not closer than a visited one on the same side of the bank transfer.
+		int bestFirstIndex = -1;
+		int bestSecondIndex = -1;
+		long bestDifference = 0;
+		int firstIndex = 0;
+		int secondIndex = secondSums.size - 1;
+		while (firstIndex < firstSums.size && secondIndex >= 0) {
+			long difference = firstSums.sums[firstIndex] + secondSums.sums[secondIndex] - target;
+			if (Math.abs(difference) <= toleranceCents && (bestFirstIndex < 0 || isCloser(difference, bestDifference))) {
+				bestFirstIndex = firstIndex;
+				bestSecondIndex = secondIndex;
+				bestDifference = difference;
+			}
+			if (difference == 0) {
+				break;
+			} else if (difference < 0) {
+				firstIndex++;
+			} else {
+				secondIndex--;
+			}
+		}
+
+		if (bestFirstIndex < 0) {
+			// No solution.
+			return null;
+		}
+		return toPayments(duePayments, firstHalf, firstSums.masks[bestFirstIndex], secondHalf, secondSums.masks[bestSecondIndex]);
+	}
+
+	// At equal distance, the sum below the bank transfer is preferred.
+	private static boolean isCloser(long difference, long bestDifference) {
+		long distance = Math.abs(difference);
+		long bestDistance = Math.abs(bestDifference);
+		return distance < bestDistance || (distance == bestDistance && difference < bestDifference);
+	}
+
+	private static List<PaymentAmount> toPayments(List<PaymentAmount> duePayments, int[] firstHalf, int firstMask, int[] secondHalf, int secondMask) {
+		int[] indexes = new int[Integer.bitCount(firstMask) + Integer.bitCount(secondMask)];
+		int count = 0;
+		for (int bit = 0; bit < firstHalf.length; bit++) {
+			if ((firstMask & (1 << bit)) != 0) {
+				indexes[count++] = firstHalf[bit];
+			}
+		}
+		for (int bit = 0; bit < secondHalf.length; bit++) {
+			if ((secondMask & (1 << bit)) != 0) {
+				indexes[count++] = secondHalf[bit];
+			}
+		}
+		return PaymentArrays.toPayments(duePayments, indexes, count);
+	}
+
+	/**
+	 * Sorted subset sums (not above maxSum) of a half, with the bitmask of each subset.
+	 */
+	private static class SubsetSums {
+		final long[] sums;
+		final int[] masks;
+		final int size;
+
+		SubsetSums(long[] cents, int[] half, long maxSum) {
+			// Add the items one by one: the sorted sums are merged with the same sums plus the item.
+			int capacity = 1 << half.length;
+			long[] currentSums = new long[capacity];
+			int[] currentMasks = new int[capacity];
+			long[] mergedSums = new long[capacity];
+			int[] mergedMasks = new int[capacity];
+			int nbSums = 1;
+			for (int bit = 0; bit < half.length; bit++) {
+				long item = cents[half[bit]];
+				int withoutIndex = 0;
+				int withIndex = 0;
+				int mergedSize = 0;
+				while (withoutIndex < nbSums || withIndex < nbSums) {
+					if (withIndex < nbSums && currentSums[withIndex] > maxSum - item) {
+						// The next sums with the item are above maxSum.
+						withIndex = nbSums;
+					}
+					if (withIndex < nbSums && (withoutIndex == nbSums || currentSums[withIndex] + item < currentSums[withoutIndex])) {
+						mergedSums[mergedSize] = currentSums[withIndex] + item;
+						mergedMasks[mergedSize] = currentMasks[withIndex] | (1 << bit);
+						withIndex++;
+						mergedSize++;
+					} else if (withoutIndex < nbSums) {
+						mergedSums[mergedSize] = currentSums[withoutIndex];
+						mergedMasks[mergedSize] = currentMasks[withoutIndex];
+						withoutIndex++;
+						mergedSize++;
+					}
+				}
+
+				long[] swapSums = currentSums;
+				currentSums = mergedSums;
+				mergedSums = swapSums;
+				int[] swapMasks = currentMasks;
+				currentMasks = mergedMasks;
+				mergedMasks = swapMasks;
+				nbSums = mergedSize;
+			}
+
+			sums = currentSums;
+			masks = currentMasks;
+			size = nbSums;
+		}
+	}
+}
@@ -0,0 +1,539 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Allocate disjoint lists of due payments to several bank transfers at once: each due payment settles
+ * at most one bank transfer (exactly one if all of them are required). Unlike the exclusive mode of
+ * {@link BatchPaymentCalculator}, where a bank transfer takes its payments without looking at the next
+ * ones, a choice that leaves a later bank transfer without solution is undone.
+ * <p>
+ * The bank transfers are completed one after the other, by decreasing amount, each one with the forward
+ * search of {@link FindPaymentCalculator} on the payments left. The failed states are remembered and shared
+ * by all the bank transfers, with the multisets of amounts as keys (fingerprint sums): a bank transfer which
+ * can't start on the payments left, an amount left which no subset of the candidate payments reaches
+ * (whatever the bank transfer), or a subset which leaves the next bank transfers without solution.
+ * When a bank transfer starts, the payments left must be able to reach each next one (sum, gcd, smallest
+ * payment, reachable sums up to MAX_REACHABLE_SUM cents). If all the payments are required, the last bank
+ * transfer takes the payments left.
+ *
+ */
+public class MultiTransferAllocator {
+
+	// The duration, cancellation and interruption are checked every 1024 nodes.
+	private static final long CHECK_MASK = 1023;
+
+	// Highest bank transfer in cents for which the reachable sums of the payments left are checked (about 128 KB).
+	private static final int MAX_REACHABLE_SUM = DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET;
+
+	// Next branch of a frame: a payment frame includes then excludes its payment,
+	// a bank transfer frame starts the search of its bank transfer.
+	private static final byte INCLUDE = 0;
+	private static final byte EXCLUDE = 1;
+	private static final byte START = 2;
+	private static final byte DONE = 3;
+
+	/**
+	 * Logger
+	 * Logger level = WARNING (Disable info)
+	 */
+	private static Logger logger = Logger.getLogger(MultiTransferAllocator.class.getSimpleName());
+	static {
+		logger.setLevel(Level.WARNING);
+	}
+
+	private final int maxMemoSize;
+
+	public MultiTransferAllocator() {
+		this(PaymentMemo.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxMemoSize max number of failed states remembered (the oldest ones are evicted)
+	 */
+	public MultiTransferAllocator(int maxMemoSize) {
+		super();
+		this.maxMemoSize = maxMemoSize;
+	}
+
+	/**
+	 * Return, for each bank transfer, a list of due payments for which the sum is equal to the bank transfer,
+	 * no due payment being in two lists.
+	 * @param bankTransfers
+	 * @param duePayments
+	 * @param requireAll true if every due payment must be allocated
+	 * @return found payments of each bank transfer, in the order of the bank transfers (null if no allocation)
+	 * @throws PaymentException
+	 */
+	public List<List<PaymentAmount>> allocate(List<PaymentAmount> bankTransfers, List<PaymentAmount> duePayments, boolean requireAll) throws PaymentException {
+		return allocate(bankTransfers, duePayments, requireAll, SearchBudget.UNLIMITED);
+	}
+
+	/**
+	 * Same as {@link #allocate(List, List, boolean)}, within the limits of the budget.
+	 * @param bankTransfers
+	 * @param duePayments
+	 * @param requireAll true if every due payment must be allocated
+	 * @param budget
+	 * @return found payments of each bank transfer, in the order of the bank transfers (null if no allocation)
+	 * @throws PaymentException if the budget is exceeded
+	 */
+	public List<List<PaymentAmount>> allocate(List<PaymentAmount> bankTransfers, List<PaymentAmount> duePayments, boolean requireAll,
+			SearchBudget budget) throws PaymentException {
+		// Validate parameters.
+		if (bankTransfers == null) {
+			throw new PaymentException("No bank transfers");
+		}
+		if (duePayments == null) {
+			throw new PaymentException("No due payments");
+		}
+		if (budget == null) {
+			throw new PaymentException("No search budget");
+		}
+		long[] targets = new long[bankTransfers.size()];
+		for (int transferIndex = 0; transferIndex < targets.length; transferIndex++) {
+			PaymentArrays.validate(bankTransfers.get(transferIndex), duePayments);
+			targets[transferIndex] = bankTransfers.get(transferIndex).getAmount();
+		}
+		long[] cents = PaymentArrays.toCents(duePayments);
+		for (int paymentIndex = 0; paymentIndex < cents.length; paymentIndex++) {
+			if (cents[paymentIndex] < 0) {
+				throw new PaymentException("Negative due payment " + duePayments.get(paymentIndex) + " is not supported");
+			}
+		}
+
+		// Duration.
+		long startTime = System.nanoTime();
+
+		// Work on the non-zero amounts in cents, by decreasing amount, and on the bank transfers by decreasing amount.
+		Allocation allocation = new Allocation(cents, targets, requireAll, maxMemoSize, budget);
+		// Without bank transfers, no due payment (even of zero amount) can be allocated.
+		boolean found = (!requireAll || targets.length > 0 || cents.length == 0) && allocation.isFeasible() && allocatePayments(allocation);
+		if (allocation.gaveUp) {
+			throw new PaymentException("Allocation gave up after " + allocation.nodes + " nodes");
+		}
+
+		List<List<PaymentAmount>> foundPayments = null;
+		if (found) {
+			// The largest payment of each bank transfer comes first.
+			foundPayments = new ArrayList<List<PaymentAmount>>(targets.length);
+			for (int transferIndex = 0; transferIndex < targets.length; transferIndex++) {
+				foundPayments.add(new ArrayList<PaymentAmount>());
+			}
+			for (int itemIndex = 0; itemIndex < allocation.items.length; itemIndex++) {
+				int bin = allocation.itemBins[itemIndex];
+				if (bin >= 0) {
+					foundPayments.get(allocation.transfers[bin]).add(duePayments.get(allocation.indexes[itemIndex]));
+				}
+			}
+			if (requireAll && targets.length > 0) {
+				// The zero amounts go with the first bank transfer.
+				for (int paymentIndex = 0; paymentIndex < cents.length; paymentIndex++) {
+					if (cents[paymentIndex] == 0) {
+						foundPayments.get(0).add(duePayments.get(paymentIndex));
+					}
+				}
+			}
+		}
+
+		// Log.
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Allocation of " + bankTransfers.size() + " bank transfers: " + (found ? "found" : "no solution") + ", nodes: "
+					+ allocation.nodes + ", memo hits: " + allocation.memoHits + ", pruned: " + allocation.prunedBranches + ", duration (in seconds): "
+					+ (System.nanoTime() - startTime) / 1000000000.0);
+		}
+		return foundPayments;
+	}
+
+	// Iterative search, on an explicit stack of frames.
+	// A bank transfer frame holds the bin (bank transfer index by decreasing amount) to start, its payments left being in
+	// pools[bin]. A payment frame holds the bin, the position of its payment in pools[bin], the amount left of the bin,
+	// and the next branch to try. The frames of a bin only move forward through its pool, including or excluding each payment.
+	private boolean allocatePayments(Allocation allocation) {
+		long[] items = allocation.items;
+		int nbBins = allocation.targets.length;
+		int depth = 0;
+		int bin = -1;
+		int position = 0;
+		long bankTransfer = 0;
+		while (true) {
+			// ---------------------------------------------------------------------------------------------------
+			// 1- Enter a new node: bin, position and bankTransfer (the amount left of the bin) describe it.
+			// ---------------------------------------------------------------------------------------------------
+
+			// Check the budget.
+			if (++allocation.nodes > allocation.maxNodes || ((allocation.nodes & CHECK_MASK) == 0 && allocation.isOverBudget())) {
+				allocation.gaveUp = true;
+				return false;
+			}
+
+			boolean failed = false;
+			long key;
+			if (bankTransfer == 0) {
+				// The bin is complete: start the next one.
+				bin++;
+				if (depth > 0) {
+					// The payments of the frame complete a bin.
+					allocation.frameCompleted[depth - 1] = true;
+				}
+				if (bin == nbBins) {
+					// It works.
+					return true;
+				}
+				if (!allocation.startBin(bin)) {
+					// The payments left can't reach the next bins.
+					allocation.prunedBranches++;
+					failed = true;
+				} else if (allocation.requireAll && bin == nbBins - 1) {
+					// It works with all of them.
+					allocation.takeAll(bin);
+					return true;
+				}
+				key = allocation.fingerprint;
+				position = -1;
+			} else {
+				// Skip the payments above the amount left (first position not above it).
+				int[] pool = allocation.pools[bin];
+				int low = position;
+				int high = pool.length;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (items[pool[middle]] > bankTransfer) {
+						low = middle + 1;
+					} else {
+						high = middle;
+					}
+				}
+				if (low > position) {
+					allocation.prunedBranches++;
+					position = low;
+				}
+
+				// The payments left in the pool must sum at least to the amount left.
+				if (position == pool.length || allocation.poolSums[bin][position] < bankTransfer) {
+					allocation.prunedBranches++;
+					failed = true;
+				}
+				key = allocation.getKey(bin, position);
+			}
+			if (!failed) {
+				// The amount left of a bank transfer frame is never looked for (-1 - bin).
+				long memoAmount = position < 0 ? -1 - bin : bankTransfer;
+				if (position >= 0 && allocation.failures.contains(bankTransfer, allocation.poolSuffixFingerprints[bin][position])) {
+					// No subset of the payments left in the pool.
+					allocation.memoHits++;
+					failed = true;
+				} else if (allocation.failures.contains(memoAmount, key)) {
+					// A subset, but not for the next bins.
+					allocation.memoHits++;
+					if (position >= 0) {
+						allocation.frameCompleted[depth - 1] = true;
+					}
+					failed = true;
+				} else {
+					allocation.push(depth, bin, position, bankTransfer, memoAmount, key, position < 0 ? START : INCLUDE);
+					depth++;
+				}
+			}
+
+			// ---------------------------------------------------------------------------------------------------
+			// 2- Go to the next branch of the current frame, removing the frames with no branch left.
+			// ---------------------------------------------------------------------------------------------------
+			while (true) {
+				if (depth == 0) {
+					// No solution.
+					return false;
+				}
+				int frame = depth - 1;
+				bin = allocation.frameBins[frame];
+				position = allocation.framePositions[frame];
+				bankTransfer = allocation.frameBankTransfers[frame];
+				int branch = allocation.frameBranches[frame];
+				if (branch == START) {
+					// Search the payments of the bin.
+					allocation.frameBranches[frame] = DONE;
+					position = 0;
+					bankTransfer = allocation.targets[bin];
+					break;
+				}
+				if (branch == INCLUDE) {
+					// Include the payment.
+					allocation.frameBranches[frame] = EXCLUDE;
+					allocation.include(allocation.pools[bin][position], bin);
+					bankTransfer -= items[allocation.pools[bin][position]];
+					position++;
+					break;
+				}
+				if (branch == EXCLUDE) {
+					// Exclude the payment, and the next ones with the same amount (already tried by the include branch).
+					allocation.frameBranches[frame] = DONE;
+					int[] pool = allocation.pools[bin];
+					allocation.exclude(pool[position]);
+					int nextPosition = position + 1;
+					while (nextPosition < pool.length && items[pool[nextPosition]] == items[pool[position]]) {
+						nextPosition++;
+					}
+					if (nextPosition > position + 1) {
+						allocation.prunedBranches++;
+					}
+					position = nextPosition;
+					break;
+				}
+
+				// No solution from this frame: no subset of the payments left in the pool,
+				// or subsets but not for the next bins.
+				if (position >= 0 && !allocation.frameCompleted[frame]) {
+					allocation.failures.add(bankTransfer, allocation.poolSuffixFingerprints[bin][position]);
+				} else {
+					allocation.failures.add(allocation.frameMemoAmounts[frame], allocation.frameKeys[frame]);
+				}
+				if (position >= 0 && allocation.frameCompleted[frame] && frame > 0 && allocation.framePositions[frame - 1] >= 0) {
+					allocation.frameCompleted[frame - 1] = true;
+				}
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * State of an allocation: useful due payments in cents by decreasing amount, with their index in the due payments list
+	 * and their bin (-1 if not allocated), the bins by decreasing amount with their bank transfer index, the payments left
+	 * when each bin started, the stack and the budget.
+	 */
+	private static class Allocation {
+		final long[] items;
+		final int[] indexes;
+		final int[] itemBins;
+		final long[] targets;
+		final int[] transfers;
+		// Sum of the amounts of the bins from each one.
+		final long[] targetSums;
+		final boolean requireAll;
+		// Payments left when each bin started, by decreasing amount, with the sums and fingerprints from each position.
+		final int[][] pools;
+		final long[][] poolSums;
+		final long[][] poolSuffixFingerprints;
+		// Stack of the iterative search, by depth.
+		int[] frameBins;
+		int[] framePositions;
+		long[] frameBankTransfers;
+		long[] frameMemoAmounts;
+		long[] frameKeys;
+		byte[] frameBranches;
+		// True if a subset of the frame completes its bin.
+		boolean[] frameCompleted;
+		final PaymentMemo failures;
+		final long startTime;
+		final long timeout;
+		final long maxNodes;
+		final CancellationToken cancellationToken;
+		// Sum of the hashes of the payments left.
+		long fingerprint;
+		long nodes;
+		boolean gaveUp;
+
+		// Statistics.
+		long memoHits;
+		long prunedBranches;
+		// Reachable sums of the pool of a bin.
+		long[] reachableBits;
+
+		Allocation(long[] cents, long[] bankTransfers, boolean requireAll, int maxMemoSize, SearchBudget budget) {
+			this.indexes = PaymentArrays.sortByDecreasingAmount(cents, Long.MAX_VALUE);
+			int nbItems = indexes.length;
+			this.items = new long[nbItems];
+			for (int index = 0; index < nbItems; index++) {
+				items[index] = cents[indexes[index]];
+				fingerprint += PaymentMemo.hash(items[index]);
+			}
+			this.itemBins = new int[nbItems];
+			Arrays.fill(itemBins, -1);
+
+			// Bins by decreasing amount (the zero ones last).
+			int nbBins = bankTransfers.length;
+			int[] sortedTransfers = PaymentArrays.sortByDecreasingAmount(bankTransfers, Long.MIN_VALUE, Long.MAX_VALUE);
+			this.transfers = Arrays.copyOf(sortedTransfers, nbBins);
+			int bin = sortedTransfers.length;
+			for (int transferIndex = 0; transferIndex < nbBins; transferIndex++) {
+				if (bankTransfers[transferIndex] == 0) {
+					transfers[bin++] = transferIndex;
+				}
+			}
+			this.targets = new long[nbBins];
+			for (bin = 0; bin < nbBins; bin++) {
+				targets[bin] = bankTransfers[transfers[bin]];
+			}
+			this.targetSums = new long[nbBins + 1];
+			for (bin = nbBins - 1; bin >= 0; bin--) {
+				targetSums[bin] = PaymentArrays.saturatedAdd(targetSums[bin + 1], Math.max(targets[bin], 0));
+			}
+			this.requireAll = requireAll;
+			this.pools = new int[nbBins][];
+			this.poolSums = new long[nbBins][];
+			this.poolSuffixFingerprints = new long[nbBins][];
+			int capacity = nbItems + nbBins + 1;
+			this.frameBins = new int[capacity];
+			this.framePositions = new int[capacity];
+			this.frameBankTransfers = new long[capacity];
+			this.frameMemoAmounts = new long[capacity];
+			this.frameKeys = new long[capacity];
+			this.frameBranches = new byte[capacity];
+			this.frameCompleted = new boolean[capacity];
+			this.failures = new PaymentMemo(maxMemoSize);
+			this.startTime = System.nanoTime();
+			this.timeout = budget.getTimeoutMillis() * 1000000L;
+			this.maxNodes = budget.getMaxNodes() > 0 ? budget.getMaxNodes() : Long.MAX_VALUE;
+			this.cancellationToken = budget.getCancellationToken();
+		}
+
+		// No negative bank transfer, and the payments can cover all of them.
+		boolean isFeasible() {
+			for (long target : targets) {
+				if (target < 0) {
+					return false;
+				}
+			}
+			long total = PaymentArrays.total(items);
+			return requireAll ? targetSums[0] == total : targetSums[0] <= total;
+		}
+
+		// Build the pool of the bin from the payments left, and check that they can reach each next bin:
+		// an amount not below the smallest payment left and multiple of their gcd, and a total not above their sum
+		// (equal if all the payments are required).
+		boolean startBin(int bin) {
+			int size = 0;
+			for (int itemBin : itemBins) {
+				if (itemBin < 0) {
+					size++;
+				}
+			}
+			int[] pool = new int[size];
+			int position = 0;
+			long gcd = 0;
+			for (int itemIndex = 0; itemIndex < items.length; itemIndex++) {
+				if (itemBins[itemIndex] < 0) {
+					pool[position++] = itemIndex;
+					long value = items[itemIndex];
+					while (value != 0) {
+						long remainder = gcd % value;
+						gcd = value;
+						value = remainder;
+					}
+				}
+			}
+			long[] sums = new long[size + 1];
+			long[] suffixFingerprints = new long[size + 1];
+			for (position = size - 1; position >= 0; position--) {
+				sums[position] = sums[position + 1] + items[pool[position]];
+				suffixFingerprints[position] = suffixFingerprints[position + 1] + PaymentMemo.hash(items[pool[position]]);
+			}
+			pools[bin] = pool;
+			poolSums[bin] = sums;
+			poolSuffixFingerprints[bin] = suffixFingerprints;
+
+			if (requireAll ? sums[0] != targetSums[bin] : sums[0] < targetSums[bin]) {
+				return false;
+			}
+			long smallest = size > 0 ? items[pool[size - 1]] : 0;
+			for (int nextBin = bin; nextBin < targets.length; nextBin++) {
+				long target = targets[nextBin];
+				if (target > 0 && (target < smallest || target % gcd != 0)) {
+					return false;
+				}
+			}
+			return targets[bin] > MAX_REACHABLE_SUM || areReachable(pool, bin);
+		}
+
+		// Each next bin must be a sum of payments of the pool (reachable sums bitset up to the amount of the bin,
+		// the highest one).
+		private boolean areReachable(int[] pool, int bin) {
+			int maxSum = (int) targets[bin];
+			int nbWords = (maxSum >>> 6) + 1;
+			if (reachableBits == null) {
+				reachableBits = new long[nbWords];
+			}
+			long[] bits = reachableBits;
+			Arrays.fill(bits, 0, nbWords, 0L);
+			bits[0] = 1L;
+			for (int itemIndex : pool) {
+				long amount = items[itemIndex];
+				if (amount > maxSum) {
+					continue;
+				}
+				int wordShift = (int) (amount >>> 6);
+				int bitShift = (int) (amount & 63);
+				for (int word = nbWords - 1; word >= wordShift; word--) {
+					int source = word - wordShift;
+					long shifted = bits[source] << bitShift;
+					if (bitShift != 0 && source > 0) {
+						shifted |= bits[source - 1] >>> (64 - bitShift);
+					}
+					bits[word] |= shifted;
+				}
+			}
+			for (int nextBin = bin; nextBin < targets.length; nextBin++) {
+				long target = targets[nextBin];
+				if ((bits[(int) (target >>> 6)] & (1L << target)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// Key of a payment node: the payments left, and the ones of the pool from the position.
+		long getKey(int bin, int position) {
+			return fingerprint + PaymentMemo.hash(poolSuffixFingerprints[bin][position]) * 31 + bin;
+		}
+
+		void include(int itemIndex, int bin) {
+			itemBins[itemIndex] = bin;
+			fingerprint -= PaymentMemo.hash(items[itemIndex]);
+		}
+
+		void exclude(int itemIndex) {
+			itemBins[itemIndex] = -1;
+			fingerprint += PaymentMemo.hash(items[itemIndex]);
+		}
+
+		void takeAll(int bin) {
+			for (int itemIndex = 0; itemIndex < items.length; itemIndex++) {
+				if (itemBins[itemIndex] < 0) {
+					include(itemIndex, bin);
+				}
+			}
+		}
+
+		void push(int depth, int bin, int position, long bankTransfer, long memoAmount, long key, byte branch) {
+			if (depth == frameBins.length) {
+				int capacity = 2 * depth;
+				frameBins = Arrays.copyOf(frameBins, capacity);
+				framePositions = Arrays.copyOf(framePositions, capacity);
+				frameBankTransfers = Arrays.copyOf(frameBankTransfers, capacity);
+				frameMemoAmounts = Arrays.copyOf(frameMemoAmounts, capacity);
+				frameKeys = Arrays.copyOf(frameKeys, capacity);
+				frameBranches = Arrays.copyOf(frameBranches, capacity);
+				frameCompleted = Arrays.copyOf(frameCompleted, capacity);
+			}
+			frameBins[depth] = bin;
+			framePositions[depth] = position;
+			frameBankTransfers[depth] = bankTransfer;
+			frameMemoAmounts[depth] = memoAmount;
+			frameKeys[depth] = key;
+			frameBranches[depth] = branch;
+			frameCompleted[depth] = false;
+		}
+
+		boolean isOverBudget() {
+			return (timeout > 0 && System.nanoTime() - startTime > timeout)
+					|| (cancellationToken != null && cancellationToken.isCancelled())
+					|| Thread.currentThread().isInterrupted();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Implementation of the calculator interface which groups the equal due payments.
+ * The search chooses how many payments of each amount are used (bounded knapsack),
+ * so the copies of an amount are never explored as distinct branches.
+ *
+ */
+public class MultisetPaymentCalculator implements IFindPaymentCalculator {
+
+	private final int maxMemoSize;
+
+	// Answers the closest match requests.
+	private final ClosestPaymentCalculator closestCalculator = new ClosestPaymentCalculator();
+
+	public MultisetPaymentCalculator() {
+		this(PaymentMemo.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxMemoSize max number of failed searches remembered (the oldest ones are evicted)
+	 */
+	public MultisetPaymentCalculator(int maxMemoSize) {
+		super();
+		this.maxMemoSize = maxMemoSize;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+
+		long target = bankTransfer.getAmount();
+		if (target < 0) {
+			// No solution.
+			return null;
+		}
+
+		// Group the due payments by amount.
+		PaymentGroups groups = new PaymentGroups(cents, target);
+		
+		// Any sum of due payments is a multiple of their gcd.
+		long gcd = PaymentArrays.gcd(groups.values);
+		if (gcd > 1 && target % gcd != 0) {
+			// No solution.
+			return null;
+		}
+
+		// Call iterative method.
+		PaymentMemo failures = new PaymentMemo(maxMemoSize);
+		int[] chosenCounts = new int[groups.size()];
+		if (!calculateCounts(groups, target, chosenCounts, failures)) {
+			// No solution.
+			return null;
+		}
+
+		// Take the first payments of each amount.
+		List<PaymentAmount> foundPayments = new ArrayList<PaymentAmount>();
+		for (int group = 0; group < groups.size(); group++) {
+			for (int count = 0; count < chosenCounts[group]; count++) {
+				foundPayments.add(duePayments.get(groups.indexes[groups.starts[group] + count]));
+			}
+		}
+		return foundPayments;
+	}
+
+	/**
+	 * Interface implementation: the closest sum is taken from the reachable sums
+	 * (see {@link DynamicProgrammingPaymentCalculator}), or searched above their max target.
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		return closestCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+	}
+
+	/**
+	 * Return the distinct lists of due payments for which the sum is equal to the bank transfer,
+	 * computed one by one as the iterator goes. Two lists with the same amounts are the same solution.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @param limit max number of solutions (0 for no limit)
+	 * @param order
+	 * @return foundPayments iterator
+	 * @throws PaymentException
+	 */
+	public Iterator<List<PaymentAmount>> findAllPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int limit, SolutionOrder order) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+		if (order == null) {
+			throw new PaymentException("No solution order");
+		}
+
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+		return new MultisetSolutionIterator(duePayments, cents, bankTransfer.getAmount(), limit, order, maxMemoSize);
+	}
+
+	// Iterative search, on an explicit stack of one frame per group (as in FindPaymentCalculator), so that the depth
+	// is not bounded by the thread stack: the frame of a group holds the bank transfer left before it,
+	// and chosenCounts[group] is the count being tried, highest first.
+	// A failed (group, bank transfer left) state is remembered, whatever the counts chosen before it.
+	private static boolean calculateCounts(PaymentGroups groups, long target, int[] chosenCounts, PaymentMemo failures) {
+		int nbGroups = groups.size();
+		long[] frameBankTransfers = new long[nbGroups];
+		int group = 0;
+		long bankTransfer = target;
+		while (true) {
+			// Enter the group with the bank transfer left.
+			if (bankTransfer == 0) {
+				// It works.
+				Arrays.fill(chosenCounts, group, nbGroups, 0);
+				return true;
+			}
+			if (group < nbGroups && groups.remainingSums[group] == bankTransfer) {
+				// It works with all the remaining payments.
+				System.arraycopy(groups.counts, group, chosenCounts, group, nbGroups - group);
+				return true;
+			}
+			if (group < nbGroups && groups.remainingSums[group] > bankTransfer && !failures.contains(bankTransfer, group)) {
+				// Try the highest count first.
+				frameBankTransfers[group] = bankTransfer;
+				chosenCounts[group] = (int) Math.min(groups.counts[group], bankTransfer / groups.values[group]);
+				bankTransfer -= chosenCounts[group] * groups.values[group];
+				group++;
+				continue;
+			}
+
+			// No solution: back to the previous groups, for their next lower count.
+			do {
+				group--;
+				if (group < 0) {
+					return false;
+				}
+				if (chosenCounts[group] == 0) {
+					failures.add(frameBankTransfers[group], group);
+				}
+			} while (chosenCounts[group] == 0);
+			chosenCounts[group]--;
+			bankTransfer = frameBankTransfers[group] - chosenCounts[group] * groups.values[group];
+			group++;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.payment.algo;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.payment.domain.PaymentAmount;
+
+/**
+ * Lazy enumeration of the distinct subsets of due payments for which the sum is equal to the bank transfer.
+ * Two subsets with the same amounts are the same solution, made of the oldest payments of each amount.
+ * The search chooses how many payments of each amount are used (as {@link MultisetPaymentCalculator} does)
+ * with an explicit stack, so it stops on each solution and resumes from there on the next call.
+ * FEWEST_PAYMENTS runs one search per number of payments, OLDEST_FIRST one search per most recent payment.
+ * Not thread-safe.
+ *
+ */
+final class MultisetSolutionIterator implements Iterator<List<PaymentAmount>> {
+	private final List<PaymentAmount> duePayments;
+	private final PaymentGroups groups;
+	private final int[] groupsByPayment;
+	private final SolutionOrder order;
+	private final long target;
+	private final int limit;
+	private final int maxMemoSize;
+	private final int lastRound;
+
+	// Bounds of the current round: count of each group, and number of payments (-1 if free).
+	private final int[] minCounts;
+	private final int[] maxCounts;
+	private int nbPayments;
+	private int forcedGroup = -1;
+
+	// Sums and counts of the bounds from each group on.
+	private final long[] minSums;
+	private final long[] maxSums;
+	private final int[] minCountSums;
+	private final int[] maxCountSums;
+
+	// Explicit stack: one frame per group, with the state before choosing its count.
+	private final int[] chosenCounts;
+	private final long[] frameRemaining;
+	private final int[] framePayments;
+	private final int[] frameSolutions;
+	private int depth = -1;
+	private boolean descending;
+	private long remaining;
+	private int remainingPayments;
+
+	private PaymentMemo failures;
+	private int round;
+	private int nbSolutions;
+	private List<PaymentAmount> nextSolution;
+	private boolean done;
+
+	/**
+	 * @param duePayments
+	 * @param cents amounts of the due payments (not negative)
+	 * @param target bank transfer in cents
+	 * @param limit max number of solutions (0 for no limit)
+	 * @param order
+	 * @param maxMemoSize max number of failed searches remembered
+	 */
+	MultisetSolutionIterator(List<PaymentAmount> duePayments, long[] cents, long target, int limit, SolutionOrder order, int maxMemoSize) {
+		this.duePayments = duePayments;
+		this.groups = new PaymentGroups(cents, Math.max(target, 0));
+		this.groupsByPayment = groups.groupsByPayment(cents.length);
+		this.order = order;
+		this.target = target;
+		this.limit = limit;
+		this.maxMemoSize = maxMemoSize;
+		if (order == SolutionOrder.FEWEST_PAYMENTS) {
+			lastRound = groups.indexes.length;
+		} else if (order == SolutionOrder.OLDEST_FIRST) {
+			lastRound = cents.length;
+		} else {
+			lastRound = 0;
+		}
+
+		int size = groups.size();
+		minCounts = new int[size];
+		maxCounts = new int[size];
+		minSums = new long[size + 1];
+		maxSums = new long[size + 1];
+		minCountSums = new int[size + 1];
+		maxCountSums = new int[size + 1];
+		chosenCounts = new int[size];
+		frameRemaining = new long[size];
+		framePayments = new int[size];
+		frameSolutions = new int[size];
+
+		// Any sum of due payments is a multiple of their gcd.
+		long gcd = PaymentArrays.gcd(groups.values);
+		done = target < 0 || (gcd > 1 && target % gcd != 0);
+	}
+
+	public boolean hasNext() {
+		if (nextSolution == null && !done) {
+			nextSolution = findNext();
+			done = nextSolution == null;
+		}
+		return nextSolution != null;
+	}
+
+	public List<PaymentAmount> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		List<PaymentAmount> solution = nextSolution;
+		nextSolution = null;
+		return solution;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	private List<PaymentAmount> findNext() {
+		if (limit > 0 && nbSolutions >= limit) {
+			return null;
+		}
+		while (true) {
+			if (depth < 0 && !startRound()) {
+				// No more solutions.
+				return null;
+			}
+			if (search()) {
+				nbSolutions++;
+				return toPayments();
+			}
+		}
+	}
+
+	// Set the bounds of the next round which can have solutions.
+	private boolean startRound() {
+		while (round <= lastRound) {
+			if (prepareRound(round++)) {
+				int size = groups.size();
+				for (int group = size - 1; group >= 0; group--) {
+					minSums[group] = minSums[group + 1] + groups.values[group] * minCounts[group];
+					maxSums[group] = maxSums[group + 1] + groups.values[group] * maxCounts[group];
+					minCountSums[group] = minCountSums[group + 1] + minCounts[group];
+					maxCountSums[group] = maxCountSums[group + 1] + maxCounts[group];
+				}
+				failures = new PaymentMemo(maxMemoSize);
+				remaining = target;
+				remainingPayments = nbPayments;
+				depth = 0;
+				descending = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean prepareRound(int currentRound) {
+		if (order == SolutionOrder.OLDEST_FIRST) {
+			// Round 0 is the empty subset, round r uses the payments up to r - 1, with all of them at the amount of r - 1.
+			nbPayments = -1;
+			if (currentRound == 0) {
+				return true;
+			}
+			int group = groupsByPayment[currentRound - 1];
+			if (group < 0) {
+				return false;
+			}
+			if (forcedGroup >= 0) {
+				minCounts[forcedGroup] = 0;
+			}
+			maxCounts[group]++;
+			minCounts[group] = maxCounts[group];
+			forcedGroup = group;
+			return true;
+		}
+
+		// Every payment can be used, FEWEST_PAYMENTS round r has exactly r payments.
+		System.arraycopy(groups.counts, 0, maxCounts, 0, groups.size());
+		nbPayments = order == SolutionOrder.FEWEST_PAYMENTS ? currentRound : -1;
+		return true;
+	}
+
+	// Run the search until the next solution of the round (false at the end of the round).
+	private boolean search() {
+		int size = groups.size();
+		while (depth >= 0) {
+			int group = depth;
+			if (descending) {
+				if (remaining == 0 && remainingPayments <= 0 && minSums[group] == 0) {
+					// It works without the remaining groups.
+					Arrays.fill(chosenCounts, group, size, 0);
+					descending = false;
+					depth = group - 1;
+					return true;
+				}
+				if (group == size || isPruned(group)) {
+					// No solution.
+					descending = false;
+					depth = group - 1;
+					continue;
+				}
+
+				// Try the highest count first.
+				long value = groups.values[group];
+				int count = (int) Math.min(maxCounts[group], remaining / value);
+				if (remainingPayments >= 0) {
+					count = Math.min(count, remainingPayments);
+				}
+				if (count < minCounts[group]) {
+					// No solution.
+					failures.add(remaining, key(group, remainingPayments));
+					descending = false;
+					depth = group - 1;
+					continue;
+				}
+				frameRemaining[group] = remaining;
+				framePayments[group] = remainingPayments;
+				frameSolutions[group] = nbSolutions;
+				choose(group, count);
+			} else {
+				int count = chosenCounts[group] - 1;
+				if (count >= minCounts[group]) {
+					// Try the next count.
+					choose(group, count);
+					descending = true;
+				} else {
+					if (frameSolutions[group] == nbSolutions) {
+						failures.add(frameRemaining[group], key(group, framePayments[group]));
+					}
+					depth = group - 1;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void choose(int group, int count) {
+		chosenCounts[group] = count;
+		remaining = frameRemaining[group] - count * groups.values[group];
+		remainingPayments = framePayments[group] < 0 ? -1 : framePayments[group] - count;
+		depth = group + 1;
+	}
+
+	private boolean isPruned(int group) {
+		if (remaining > maxSums[group] || remaining < minSums[group]) {
+			return true;
+		}
+		if (remainingPayments >= 0) {
+			if (remainingPayments > maxCountSums[group] || remainingPayments < minCountSums[group]) {
+				return true;
+			}
+			// The amounts decrease from this group on.
+			long highest = remainingPayments * groups.values[group];
+			long lowest = remainingPayments * groups.values[groups.size() - 1];
+			if (remaining > highest || remaining < lowest) {
+				return true;
+			}
+		}
+		return failures.contains(remaining, key(group, remainingPayments));
+	}
+
+	private static long key(int group, int payments) {
+		return ((long) group << 32) | (payments & 0xffffffffL);
+	}
+
+	// The oldest payments of each chosen amount, in the order of the due payments list.
+	private List<PaymentAmount> toPayments() {
+		int count = 0;
+		int[] indexes = new int[groups.indexes.length];
+		for (int group = 0; group < groups.size(); group++) {
+			System.arraycopy(groups.indexes, groups.starts[group], indexes, count, chosenCounts[group]);
+			count += chosenCounts[group];
+		}
+		Arrays.sort(indexes, 0, count);
+		return PaymentArrays.toPayments(duePayments, indexes, count);
+	}
+}
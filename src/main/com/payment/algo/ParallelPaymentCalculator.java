@@ -0,0 +1,338 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Implementation of the calculator interface which searches on several threads.
+ * The due payments are sorted by decreasing amount; the include/exclude choices of the first ones
+ * are split into tasks, each task searching the remaining payments.
+ * The tasks share the memo of the failed searches and stop as soon as one of them finds a solution.
+ * The threads are kept between the calls (they stop once idle for a while), {@link #close()} stops them
+ * as soon as no search is running.
+ *
+ */
+public class ParallelPaymentCalculator implements IMeteredFindPaymentCalculator {
+
+	// Number of tasks per thread, to balance the load.
+	private static final int TASKS_PER_THREAD = 8;
+
+	// Stack size of the search threads (the recursion depth is the number of due payments).
+	private static final long STACK_SIZE = 64L * 1024 * 1024;
+
+	// Idle time before a search thread stops, in seconds.
+	private static final long KEEP_ALIVE_TIME = 60;
+
+	private final int parallelism;
+	private final int maxMemoSize;
+
+	// Statistics receiver (null when disabled).
+	private volatile PaymentMetrics metrics;
+
+	// Search threads, created with the first call.
+	private ThreadPoolExecutor executor;
+	// Number of searches running on the threads, and whether the threads stop once there are none.
+	private int nbRunningSearches;
+	private boolean closing;
+
+	// Answers the closest match requests.
+	private final ClosestPaymentCalculator closestCalculator = new ClosestPaymentCalculator();
+
+	public ParallelPaymentCalculator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param parallelism number of threads
+	 */
+	public ParallelPaymentCalculator(int parallelism) {
+		this(parallelism, PaymentMemo.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param parallelism number of threads
+	 * @param maxMemoSize max number of failed searches remembered
+	 */
+	public ParallelPaymentCalculator(int parallelism, int maxMemoSize) {
+		super();
+		this.parallelism = Math.max(1, parallelism);
+		this.maxMemoSize = maxMemoSize;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, duePayments);
+
+		long startTime = System.nanoTime();
+		List<PaymentAmount> foundPayments = search(bankTransfer, duePayments);
+		report(bankTransfer, duePayments, foundPayments, startTime);
+		return foundPayments;
+	}
+
+	private List<PaymentAmount> search(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		long[] cents = PaymentArrays.toNonNegativeCents(duePayments);
+
+		long target = bankTransfer.getAmount();
+		if (target < 0) {
+			// No solution.
+			return null;
+		}
+
+		Search search = new Search(cents, target, maxMemoSize);
+		
+		// Any sum of due payments is a multiple of their gcd, and can't be above their total.
+		if ((search.gcd > 1 && target % search.gcd != 0) || search.remainingSums[0] < target) {
+			// No solution.
+			return null;
+		}
+
+		// One task per include/exclude choice of the first payments.
+		int splitDepth = 0;
+		while (splitDepth < search.items.length && (1 << splitDepth) < parallelism * TASKS_PER_THREAD) {
+			splitDepth++;
+		}
+		List<SearchTask> tasks = new ArrayList<SearchTask>();
+		for (int mask = (1 << splitDepth) - 1; mask >= 0; mask--) {
+			long sum = 0;
+			for (int bit = 0; bit < splitDepth; bit++) {
+				if ((mask & (1 << bit)) != 0) {
+					sum += search.items[bit];
+				}
+			}
+			if (sum <= target) {
+				tasks.add(new SearchTask(search, splitDepth, target - sum, mask));
+			}
+		}
+
+		// Run the tasks, until one of them finds a solution.
+		CompletionService<Boolean> completionService = new ExecutorCompletionService<Boolean>(startSearch());
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(tasks.size());
+		try {
+			for (SearchTask task : tasks) {
+				futures.add(completionService.submit(task));
+			}
+			for (int taskIndex = 0; taskIndex < tasks.size(); taskIndex++) {
+				if (completionService.take().get()) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PaymentException("Search interrupted", e);
+		} catch (ExecutionException e) {
+			throw new PaymentException("Search failed", e.getCause());
+		} finally {
+			// Cancel the other tasks.
+			search.cancelled.set(true);
+			for (Future<Boolean> future : futures) {
+				future.cancel(true);
+			}
+			endSearch();
+		}
+
+		int[] indexes = search.result.get();
+		if (indexes == null) {
+			// No solution.
+			return null;
+		}
+		return PaymentArrays.toPayments(duePayments, indexes, indexes.length);
+	}
+
+	/**
+	 * Interface implementation: the closest sum is taken from the reachable sums
+	 * (see {@link DynamicProgrammingPaymentCalculator}), or searched above their max target.
+	 */
+	public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+		long startTime = System.nanoTime();
+		List<PaymentAmount> foundPayments = closestCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+		report(bankTransfer, duePayments, foundPayments, startTime);
+		return foundPayments;
+	}
+
+	/**
+	 * Stop the search threads, at once if no search is running, else when the last running search ends
+	 * (a later call starts them again). Doesn't wait for the running searches.
+	 */
+	public synchronized void close() {
+		closing = true;
+		stopIfIdle();
+	}
+
+	// Return the search threads, running until the matching endSearch.
+	private synchronized ThreadPoolExecutor startSearch() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new SearchThreadFactory());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		nbRunningSearches++;
+		return executor;
+	}
+
+	private synchronized void endSearch() {
+		nbRunningSearches--;
+		stopIfIdle();
+	}
+
+	private void stopIfIdle() {
+		if (closing && nbRunningSearches == 0) {
+			closing = false;
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Interface implementation: the calls report their outcome and duration (the tasks don't count their nodes).
+	 */
+	public void setMetrics(PaymentMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private void report(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, List<PaymentAmount> foundPayments, long startTime) {
+		PaymentMetrics currentMetrics = metrics;
+		if (currentMetrics != null) {
+			currentMetrics.searchCompleted(SearchStatistics.ofCall(bankTransfer.getAmount(), duePayments.size(), foundPayments, System.nanoTime() - startTime));
+		}
+	}
+
+	/**
+	 * State shared by the tasks: useful due payments sorted by decreasing amount,
+	 * with their index in the due payments list. remainingSums[index] is the sum of the items from index.
+	 * The memo is sized on the number of (index, bank transfer left) states, up to maxMemoSize.
+	 */
+	private static class Search {
+		final long[] items;
+		final int[] indexes;
+		final long[] remainingSums;
+		final long gcd;
+		final ConcurrentPaymentMemo failures;
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		final AtomicReference<int[]> result = new AtomicReference<int[]>();
+
+		Search(long[] cents, long target, int maxMemoSize) {
+			indexes = PaymentArrays.sortByDecreasingAmount(cents, target);
+			int nbItems = indexes.length;
+			items = new long[nbItems];
+			for (int index = 0; index < nbItems; index++) {
+				items[index] = cents[indexes[index]];
+			}
+			remainingSums = new long[nbItems + 1];
+			for (int index = nbItems - 1; index >= 0; index--) {
+				remainingSums[index] = remainingSums[index + 1] + items[index];
+			}
+			gcd = PaymentArrays.gcd(items);
+			long nbStates = target / Math.max(gcd, 1) + 1;
+			nbStates = nbStates >= maxMemoSize ? maxMemoSize : Math.min(maxMemoSize, nbItems * nbStates);
+			if (nbItems < 30) {
+				nbStates = Math.min(nbStates, 1L << nbItems);
+			}
+			failures = new ConcurrentPaymentMemo((int) nbStates);
+		}
+	}
+
+	/**
+	 * Search of the payments after the split depth, the first ones being chosen by a mask.
+	 */
+	private static class SearchTask implements Callable<Boolean> {
+		private final Search search;
+		private final int startIndex;
+		private final long bankTransfer;
+		private final int[] chosen;
+		private int nbChosen;
+
+		SearchTask(Search search, int startIndex, long bankTransfer, int mask) {
+			this.search = search;
+			this.startIndex = startIndex;
+			this.bankTransfer = bankTransfer;
+			this.chosen = new int[search.items.length];
+			for (int bit = 0; bit < startIndex; bit++) {
+				if ((mask & (1 << bit)) != 0) {
+					chosen[nbChosen++] = bit;
+				}
+			}
+		}
+
+		public Boolean call() {
+			return calculatePayments(startIndex, bankTransfer, nbChosen);
+		}
+
+		// Recursive method: include or exclude the payment at index.
+		private boolean calculatePayments(int index, long bankTransfer, int depth) {
+			if (bankTransfer == 0) {
+				// It works.
+				int[] indexes = new int[depth];
+				for (int chosenIndex = 0; chosenIndex < depth; chosenIndex++) {
+					indexes[chosenIndex] = search.indexes[chosen[chosenIndex]];
+				}
+				search.result.compareAndSet(null, indexes);
+				search.cancelled.set(true);
+				return true;
+			}
+			long[] items = search.items;
+			if (index == items.length || search.remainingSums[index] < bankTransfer || search.cancelled.get() 
+					|| search.failures.contains(index, bankTransfer)) {
+				return false;
+			}
+
+			// Include the payment.
+			if (items[index] <= bankTransfer) {
+				chosen[depth] = index;
+				if (calculatePayments(index + 1, bankTransfer - items[index], depth + 1)) {
+					return true;
+				}
+			}
+
+			// Exclude the payment, and the next ones with the same amount.
+			int nextIndex = index + 1;
+			while (nextIndex < items.length && items[nextIndex] == items[index]) {
+				nextIndex++;
+			}
+			if (calculatePayments(nextIndex, bankTransfer, depth)) {
+				return true;
+			}
+
+			if (!search.cancelled.get()) {
+				search.failures.add(index, bankTransfer);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Daemon threads with a large stack.
+	 */
+	private static class SearchThreadFactory implements ThreadFactory {
+		private static final AtomicInteger threadNumber = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(null, runnable, "payment-search-" + threadNumber.incrementAndGet(), STACK_SIZE);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Conversions between the payment amount API and the primitive arrays used by the calculators.
+ *
+ */
+final class PaymentArrays {
+
+	private PaymentArrays() {
+	}
+
+	/**
+	 * Validate the calculator parameters.
+	 * @param bankTransfer
+	 * @param duePayments
+	 * @throws PaymentException
+	 */
+	static void validate(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+		if (bankTransfer == null) {
+			throw new PaymentException("No bank transfer");
+		}
+		if (duePayments == null) {
+			throw new PaymentException("No due payments");
+		}
+	}
+
+	/**
+	 * Return the amounts in cents, in the order of the list.
+	 * @param duePayments
+	 * @return cents
+	 */
+	static long[] toCents(List<PaymentAmount> duePayments) {
+		int size = duePayments.size();
+		long[] cents = new long[size];
+		for (int paymentIndex = 0; paymentIndex < size; paymentIndex++) {
+			cents[paymentIndex] = duePayments.get(paymentIndex).getAmount();
+		}
+		return cents;
+	}
+
+	/**
+	 * Return the amounts in cents, in the order of the list, for the calculators which don't support negative amounts.
+	 * @param duePayments
+	 * @return cents
+	 * @throws PaymentException if a due payment is negative
+	 */
+	static long[] toNonNegativeCents(List<PaymentAmount> duePayments) throws PaymentException {
+		long[] cents = toCents(duePayments);
+		for (int paymentIndex = 0; paymentIndex < cents.length; paymentIndex++) {
+			if (cents[paymentIndex] < 0) {
+				throw new PaymentException("Negative due payment " + duePayments.get(paymentIndex) + " is not supported");
+			}
+		}
+		return cents;
+	}
+
+	/**
+	 * Return the amounts for the calculators working on int sums (the sums are bounded by an int max target,
+	 * so the higher amounts, which can't be part of a result, are replaced by Integer.MAX_VALUE).
+	 * @param cents amounts (not negative)
+	 * @return int cents
+	 */
+	static int[] toIntCents(long[] cents) {
+		int[] intCents = new int[cents.length];
+		for (int index = 0; index < cents.length; index++) {
+			intCents[index] = (int) Math.min(cents[index], Integer.MAX_VALUE);
+		}
+		return intCents;
+	}
+
+	/**
+	 * Return the sum of the amounts (Long.MAX_VALUE if above).
+	 * @param cents amounts (not negative)
+	 * @return total
+	 */
+	static long total(long[] cents) {
+		long total = 0;
+		for (long amount : cents) {
+			total = saturatedAdd(total, amount);
+		}
+		return total;
+	}
+
+	/**
+	 * Return a + b, or Long.MAX_VALUE if above.
+	 * @param a not negative
+	 * @param b not negative
+	 * @return sum
+	 */
+	static long saturatedAdd(long a, long b) {
+		return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+	}
+
+	/**
+	 * Return the greatest common divisor of the positive amounts (0 if none).
+	 * @param cents
+	 * @return gcd
+	 */
+	static long gcd(long[] cents) {
+		long gcd = 0;
+		for (int index = 0; index < cents.length && gcd != 1; index++) {
+			long value = cents[index];
+			if (value > 0) {
+				while (value != 0) {
+					long remainder = gcd % value;
+					gcd = value;
+					value = remainder;
+				}
+			}
+		}
+		return gcd;
+	}
+
+	/**
+	 * Return the indexes of the amounts in (0, maxAmount], by decreasing amount then by index.
+	 * @param cents
+	 * @param maxAmount
+	 * @return indexes
+	 */
+	static int[] sortByDecreasingAmount(long[] cents, long maxAmount) {
+		return sortByDecreasingAmount(cents, 1, maxAmount);
+	}
+
+	/**
+	 * Return the indexes of the non-zero amounts in [minAmount, maxAmount], by decreasing amount then by index.
+	 * @param cents
+	 * @param minAmount
+	 * @param maxAmount
+	 * @return indexes
+	 */
+	static int[] sortByDecreasingAmount(long[] cents, long minAmount, long maxAmount) {
+		int[] indexes = new int[cents.length];
+		int size = 0;
+		for (int index = 0; index < cents.length; index++) {
+			if (cents[index] != 0 && cents[index] >= minAmount && cents[index] <= maxAmount) {
+				indexes[size++] = index;
+			}
+		}
+		indexes = Arrays.copyOf(indexes, size);
+
+		// Bottom-up merge sort, stable so that the equal amounts stay by index.
+		int[] buffer = new int[size];
+		for (int width = 1; width < size; width *= 2) {
+			for (int low = 0; low < size - width; low += 2 * width) {
+				merge(cents, indexes, buffer, low, low + width, Math.min(low + 2 * width, size));
+			}
+		}
+		return indexes;
+	}
+
+	private static void merge(long[] cents, int[] indexes, int[] buffer, int low, int middle, int high) {
+		System.arraycopy(indexes, low, buffer, low, high - low);
+		int left = low;
+		int right = middle;
+		for (int index = low; index < high; index++) {
+			if (right == high || (left < middle && cents[buffer[left]] >= cents[buffer[right]])) {
+				indexes[index] = buffer[left++];
+			} else {
+				indexes[index] = buffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * Return the due payments at the given indexes.
+	 * @param duePayments
+	 * @param indexes
+	 * @param count number of indexes to use
+	 * @return payments
+	 */
+	static List<PaymentAmount> toPayments(List<PaymentAmount> duePayments, int[] indexes, int count) {
+		List<PaymentAmount> payments = new ArrayList<PaymentAmount>(count);
+		for (int index = 0; index < count; index++) {
+			payments.add(duePayments.get(indexes[index]));
+		}
+		return payments;
+	}
+}
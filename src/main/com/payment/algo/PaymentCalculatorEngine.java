@@ -0,0 +1,68 @@
+package com.payment.algo;
+
+/**
+ * Available calculator engines.
+ *
+ */
+public enum PaymentCalculatorEngine {
+	/**
+	 * Cheapest engine for each input, by a cost model (AdaptivePaymentCalculator).
+	 */
+	ADAPTIVE {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new AdaptivePaymentCalculator();
+		}
+	},
+	/**
+	 * Iterative search on the due payments, largest first, with an explicit stack (FindPaymentCalculator).
+	 */
+	SEARCH {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new FindPaymentCalculator();
+		}
+	},
+	/**
+	 * Reachable sums bitset (DynamicProgrammingPaymentCalculator).
+	 */
+	DYNAMIC_PROGRAMMING {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new DynamicProgrammingPaymentCalculator();
+		}
+	},
+	/**
+	 * Subset sums of two halves joined together (MeetInTheMiddlePaymentCalculator).
+	 */
+	MEET_IN_THE_MIDDLE {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new MeetInTheMiddlePaymentCalculator();
+		}
+	},
+	/**
+	 * Search on the count of each distinct amount (MultisetPaymentCalculator).
+	 */
+	MULTISET {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new MultisetPaymentCalculator();
+		}
+	},
+	/**
+	 * Search split across the available processors (ParallelPaymentCalculator).
+	 */
+	PARALLEL {
+		@Override
+		public IFindPaymentCalculator createCalculator() {
+			return new ParallelPaymentCalculator();
+		}
+	};
+
+	/**
+	 * Create a new calculator for this engine.
+	 * @return calculator
+	 */
+	public abstract IFindPaymentCalculator createCalculator();
+}
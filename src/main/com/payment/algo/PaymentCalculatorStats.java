@@ -0,0 +1,215 @@
+package com.payment.algo;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.payment.exception.PaymentException;
+
+/**
+ * Metrics adding up the statistics of the searches: counters, max values and histograms,
+ * readable through JMX once registered. Thread-safe (a calculator per thread can share it).
+ *
+ */
+public class PaymentCalculatorStats implements PaymentMetrics, PaymentCalculatorStatsMBean {
+	private static final long[] TIME_BOUNDS_MILLIS = { 1, 10, 100, 1000, 10000 };
+	private static final long[] NODES_BOUNDS = { 1000, 10000, 100000, 1000000, 10000000 };
+
+	private final AtomicLong searchCount = new AtomicLong();
+	private final AtomicLong foundCount = new AtomicLong();
+	private final AtomicLong noSolutionCount = new AtomicLong();
+	private final AtomicLong gaveUpCount = new AtomicLong();
+	private final AtomicLong totalNodes = new AtomicLong();
+	private final AtomicLong maxNodes = new AtomicLong();
+	private final AtomicLong memoHits = new AtomicLong();
+	private final AtomicLong memoMisses = new AtomicLong();
+	private final AtomicLong maxMemoSize = new AtomicLong();
+	private final AtomicLong prunedBranches = new AtomicLong();
+	private final AtomicLong maxDepth = new AtomicLong();
+	private final AtomicLong totalTimeNanos = new AtomicLong();
+	private final AtomicLong maxTimeNanos = new AtomicLong();
+	private final AtomicLongArray timeHistogram = new AtomicLongArray(TIME_BOUNDS_MILLIS.length + 1);
+	private final AtomicLongArray nodesHistogram = new AtomicLongArray(NODES_BOUNDS.length + 1);
+	private final AtomicReference<SearchStatistics> slowestSearch = new AtomicReference<SearchStatistics>();
+	private ObjectName objectName;
+
+	public PaymentCalculatorStats() {
+		super();
+	}
+
+	/**
+	 * Interface implementation
+	 */
+	public void searchCompleted(SearchStatistics statistics) {
+		searchCount.incrementAndGet();
+		switch (statistics.getOutcome()) {
+		case FOUND:
+			foundCount.incrementAndGet();
+			break;
+		case PROVEN_NO_SOLUTION:
+			noSolutionCount.incrementAndGet();
+			break;
+		default:
+			gaveUpCount.incrementAndGet();
+			break;
+		}
+		totalNodes.addAndGet(statistics.getNodes());
+		updateMax(maxNodes, statistics.getNodes());
+		memoHits.addAndGet(statistics.getMemoHits());
+		memoMisses.addAndGet(statistics.getMemoMisses());
+		updateMax(maxMemoSize, statistics.getMemoSize());
+		prunedBranches.addAndGet(statistics.getPrunedBranches());
+		updateMax(maxDepth, statistics.getMaxDepth());
+		totalTimeNanos.addAndGet(statistics.getDurationNanos());
+		updateMax(maxTimeNanos, statistics.getDurationNanos());
+		timeHistogram.incrementAndGet(bucket(TIME_BOUNDS_MILLIS, statistics.getDurationNanos() / 1000000));
+		nodesHistogram.incrementAndGet(bucket(NODES_BOUNDS, statistics.getNodes()));
+
+		// Keep the longest search.
+		SearchStatistics slowest = slowestSearch.get();
+		while ((slowest == null || slowest.getDurationNanos() < statistics.getDurationNanos())
+				&& !slowestSearch.compareAndSet(slowest, statistics)) {
+			slowest = slowestSearch.get();
+		}
+	}
+
+	/**
+	 * Register in the platform MBean server, as com.payment:type=PaymentCalculatorStats,name=<name>.
+	 * @param name
+	 * @throws PaymentException
+	 */
+	public synchronized void register(String name) throws PaymentException {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName newObjectName = new ObjectName("com.payment:type=PaymentCalculatorStats,name=" + ObjectName.quote(name));
+			server.registerMBean(this, newObjectName);
+			objectName = newObjectName;
+		} catch (JMException e) {
+			throw new PaymentException("Can't register statistics " + name, e);
+		}
+	}
+
+	/**
+	 * Unregister from the platform MBean server (nothing if not registered).
+	 * @throws PaymentException
+	 */
+	public synchronized void unregister() throws PaymentException {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		} catch (JMException e) {
+			throw new PaymentException("Can't unregister statistics " + objectName, e);
+		}
+	}
+
+	public long getSearchCount() {
+		return searchCount.get();
+	}
+
+	public long getFoundCount() {
+		return foundCount.get();
+	}
+
+	public long getNoSolutionCount() {
+		return noSolutionCount.get();
+	}
+
+	public long getGaveUpCount() {
+		return gaveUpCount.get();
+	}
+
+	public long getTotalNodes() {
+		return totalNodes.get();
+	}
+
+	public long getMaxNodes() {
+		return maxNodes.get();
+	}
+
+	public long getMemoHits() {
+		return memoHits.get();
+	}
+
+	public long getMemoMisses() {
+		return memoMisses.get();
+	}
+
+	public int getMaxMemoSize() {
+		return (int) maxMemoSize.get();
+	}
+
+	public long getPrunedBranches() {
+		return prunedBranches.get();
+	}
+
+	public int getMaxDepth() {
+		return (int) maxDepth.get();
+	}
+
+	public long getTotalTimeMillis() {
+		return totalTimeNanos.get() / 1000000;
+	}
+
+	public long getMaxTimeMillis() {
+		return maxTimeNanos.get() / 1000000;
+	}
+
+	public long[] getTimeHistogram() {
+		return toArray(timeHistogram);
+	}
+
+	public long[] getNodesHistogram() {
+		return toArray(nodesHistogram);
+	}
+
+	public String getSlowestSearch() {
+		SearchStatistics slowest = slowestSearch.get();
+		return slowest != null ? slowest.toString() : null;
+	}
+
+	public void reset() {
+		for (AtomicLong counter : new AtomicLong[] { searchCount, foundCount, noSolutionCount, gaveUpCount, totalNodes, maxNodes,
+				memoHits, memoMisses, maxMemoSize, prunedBranches, maxDepth, totalTimeNanos, maxTimeNanos }) {
+			counter.set(0);
+		}
+		for (int index = 0; index < timeHistogram.length(); index++) {
+			timeHistogram.set(index, 0);
+		}
+		for (int index = 0; index < nodesHistogram.length(); index++) {
+			nodesHistogram.set(index, 0);
+		}
+		slowestSearch.set(null);
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	// Index of the first bound above the value (the last bucket if none).
+	private static int bucket(long[] bounds, long value) {
+		int index = 0;
+		while (index < bounds.length && value >= bounds[index]) {
+			index++;
+		}
+		return index;
+	}
+
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] values = new long[histogram.length()];
+		for (int index = 0; index < values.length; index++) {
+			values[index] = histogram.get(index);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,53 @@
+package com.payment.algo;
+
+/**
+ * JMX view of {@link PaymentCalculatorStats}.
+ *
+ */
+public interface PaymentCalculatorStatsMBean {
+	public long getSearchCount();
+
+	public long getFoundCount();
+
+	public long getNoSolutionCount();
+
+	public long getGaveUpCount();
+
+	public long getTotalNodes();
+
+	public long getMaxNodes();
+
+	public long getMemoHits();
+
+	public long getMemoMisses();
+
+	public int getMaxMemoSize();
+
+	public long getPrunedBranches();
+
+	public int getMaxDepth();
+
+	public long getTotalTimeMillis();
+
+	public long getMaxTimeMillis();
+
+	/**
+	 * @return number of searches by duration: below 1 ms, 10 ms, 100 ms, 1 s, 10 s, and above
+	 */
+	public long[] getTimeHistogram();
+
+	/**
+	 * @return number of searches by explored nodes: below 1e3, 1e4, 1e5, 1e6, 1e7, and above
+	 */
+	public long[] getNodesHistogram();
+
+	/**
+	 * @return statistics of the longest search
+	 */
+	public String getSlowestSearch();
+
+	/**
+	 * Set all the counters back to 0.
+	 */
+	public void reset();
+}
@@ -0,0 +1,63 @@
+package com.payment.algo;
+
+import java.util.Arrays;
+
+/**
+ * Distinct amounts (highest first) with their count, and the indexes of the payments of each amount.
+ * The payments of the amount values[group] are indexes[starts[group]..starts[group] + counts[group]),
+ * in the order of the due payments list. remainingSums[group] is the sum of the payments from this group on.
+ * Only the payments which can be part of a result are kept (zero amounts and amounts above the target are not).
+ *
+ */
+final class PaymentGroups {
+	final long[] values;
+	final int[] counts;
+	final int[] starts;
+	final int[] indexes;
+	final long[] remainingSums;
+	private int size;
+
+	PaymentGroups(long[] cents, long target) {
+		// Sort the useful payments by decreasing amount, then by index.
+		indexes = PaymentArrays.sortByDecreasingAmount(cents, target);
+		int nbPayments = indexes.length;
+
+		values = new long[nbPayments];
+		counts = new int[nbPayments];
+		starts = new int[nbPayments];
+		for (int index = 0; index < nbPayments; index++) {
+			long value = cents[indexes[index]];
+			if (size == 0 || values[size - 1] != value) {
+				values[size] = value;
+				starts[size] = index;
+				size++;
+			}
+			counts[size - 1]++;
+		}
+
+		remainingSums = new long[size + 1];
+		for (int group = size - 1; group >= 0; group--) {
+			remainingSums[group] = remainingSums[group + 1] + values[group] * counts[group];
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Return the group of each due payment (-1 for the payments which were not kept).
+	 * @param nbDuePayments
+	 * @return groups by payment index
+	 */
+	int[] groupsByPayment(int nbDuePayments) {
+		int[] groups = new int[nbDuePayments];
+		Arrays.fill(groups, -1);
+		for (int group = 0; group < size; group++) {
+			for (int index = starts[group]; index < starts[group] + counts[group]; index++) {
+				groups[indexes[index]] = group;
+			}
+		}
+		return groups;
+	}
+}
@@ -0,0 +1,146 @@
+package com.payment.algo;
+
+/**
+ * Set of the (bank transfer left, index) pairs already known to have no solution, the index being the one of the next
+ * due payment (or group of equal amounts) in the search order. A state which an index doesn't describe is keyed
+ * by a fingerprint of its due payments instead (see {@link #hash}).
+ * Primitive open-addressing table with linear probing, bounded in size:
+ * an entry is looked for in a window of PROBE_LIMIT slots, and when the window is full
+ * at max capacity, the oldest entry of the window is evicted.
+ * Losing an entry only means that a failed state may be searched again.
+ *
+ */
+final class PaymentMemo {
+	/**
+	 * Default max number of entries (about 42 MB).
+	 */
+	static final int DEFAULT_MAX_SIZE = 1 << 20;
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int PROBE_LIMIT = 8;
+
+	private final int maxCapacity;
+	private long[] keys;
+	private long[] amounts;
+	private int[] stamps;
+	private boolean[] used;
+	private int mask;
+	private int size;
+	private int stamp;
+	private long evictions;
+
+	PaymentMemo() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize max number of entries kept
+	 */
+	PaymentMemo(int maxSize) {
+		int capacity = PROBE_LIMIT;
+		while (capacity < 2L * maxSize && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		this.maxCapacity = capacity;
+		allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+	}
+
+	/**
+	 * Hash of an amount, to build the fingerprint of a multiset of amounts by addition.
+	 * @param cents
+	 * @return hash
+	 */
+	static long hash(long cents) {
+		return mix(cents * 0x9E3779B97F4A7C15L);
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	int size() {
+		return size;
+	}
+
+	long getEvictions() {
+		return evictions;
+	}
+
+	boolean contains(long amount, long key) {
+		int slot = slot(amount, key);
+		for (int probe = 0; probe < PROBE_LIMIT && used[slot]; probe++) {
+			if (amounts[slot] == amount && keys[slot] == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	void add(long amount, long key) {
+		if (2 * (size + 1) > keys.length && keys.length < maxCapacity) {
+			grow();
+		}
+
+		// Look for the entry or a free slot in the probe window, and for the oldest entry.
+		int slot = slot(amount, key);
+		int oldestSlot = slot;
+		for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+			if (!used[slot]) {
+				used[slot] = true;
+				size++;
+				put(slot, amount, key);
+				return;
+			}
+			if (amounts[slot] == amount && keys[slot] == key) {
+				return;
+			}
+			if (stamp - stamps[slot] > stamp - stamps[oldestSlot]) {
+				oldestSlot = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// Window full: grow, or evict the oldest entry at max capacity.
+		if (keys.length < maxCapacity) {
+			grow();
+			add(amount, key);
+			return;
+		}
+		evictions++;
+		put(oldestSlot, amount, key);
+	}
+
+	private void put(int slot, long amount, long key) {
+		amounts[slot] = amount;
+		keys[slot] = key;
+		stamps[slot] = ++stamp;
+	}
+
+	private int slot(long amount, long key) {
+		return (int) mix(key + amount) & mask;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		amounts = new long[capacity];
+		stamps = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldAmounts = amounts;
+		boolean[] oldUsed = used;
+		allocate(oldKeys.length * 2);
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldUsed[slot]) {
+				add(oldAmounts[slot], oldKeys[slot]);
+			}
+		}
+	}
+}
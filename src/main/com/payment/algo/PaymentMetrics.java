@@ -0,0 +1,14 @@
+package com.payment.algo;
+
+/**
+ * Receiver of the statistics of each search (see {@link IMeteredFindPaymentCalculator#setMetrics}).
+ * Called on the thread of the search, once it is over: the implementations must be quick and thread-safe.
+ *
+ */
+public interface PaymentMetrics {
+	/**
+	 * Record the statistics of a search.
+	 * @param statistics
+	 */
+	public void searchCompleted(SearchStatistics statistics);
+}
@@ -0,0 +1,71 @@
+package com.payment.algo;
+
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+
+/**
+ * Result of a search with a budget.
+ *
+ */
+public class PaymentSearchResult {
+
+	/**
+	 * Outcome of the search.
+	 */
+	public enum Outcome {
+		/**
+		 * Due payments found for the bank transfer.
+		 */
+		FOUND,
+		/**
+		 * The whole search ran: no due payments sum to the bank transfer.
+		 */
+		PROVEN_NO_SOLUTION,
+		/**
+		 * The budget ran out (or the search was cancelled or interrupted) before the end of the search.
+		 */
+		GAVE_UP
+	}
+
+	private final Outcome outcome;
+	private final List<PaymentAmount> payments;
+	private final PaymentAmount closestSum;
+	private final long exploredNodes;
+
+	public PaymentSearchResult(Outcome outcome, List<PaymentAmount> payments, PaymentAmount closestSum, long exploredNodes) {
+		super();
+		this.outcome = outcome;
+		this.payments = payments;
+		this.closestSum = closestSum;
+		this.exploredNodes = exploredNodes;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return found payments (null unless FOUND)
+	 */
+	public List<PaymentAmount> getPayments() {
+		return payments;
+	}
+
+	/**
+	 * @return sum of the explored due payments which is the closest to the bank transfer
+	 * (null when no solution was found by an engine which doesn't explore the sums one by one)
+	 */
+	public PaymentAmount getClosestSum() {
+		return closestSum;
+	}
+
+	public long getExploredNodes() {
+		return exploredNodes;
+	}
+
+	@Override
+	public String toString() {
+		return outcome + " " + (payments != null ? payments.toString() : "closest sum " + closestSum) + " after " + exploredNodes + " nodes";
+	}
+}
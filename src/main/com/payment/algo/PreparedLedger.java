@@ -0,0 +1,196 @@
+package com.payment.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Due payments prepared for repeated bank transfer lookups.
+ * Keeps the amounts sorted with their prefix sums (to reject impossible bank transfers at once)
+ * and the reachable sums, computed on the first lookup and grown with the bank transfers asked.
+ * The reachable sums are counted (see {@link SubsetSumCounts}), so that adding or removing a due payment updates them
+ * in place, in a time proportional to the highest sum tracked (a lookup takes about the same time for each payment found).
+ * Not thread-safe.
+ *
+ */
+public class PreparedLedger {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int maxTarget;
+
+	// Due payments in the order they were added.
+	private final List<PaymentAmount> payments = new ArrayList<PaymentAmount>();
+	// Amounts for the reachable sums (bounded by maxTarget, see PaymentArrays.toIntCents).
+	private int[] cents = new int[INITIAL_CAPACITY];
+
+	// Amounts sorted, and prefixSums[i] = sum of the i lowest amounts.
+	private long[] sortedCents = new long[INITIAL_CAPACITY];
+	private long[] prefixSums = new long[INITIAL_CAPACITY + 1];
+
+	// Reachable sums (null until needed).
+	private SubsetSumCounts sums;
+
+	public PreparedLedger(List<PaymentAmount> duePayments) throws PaymentException {
+		this(duePayments, DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET);
+	}
+
+	/**
+	 * @param duePayments
+	 * @param maxTarget max bank transfer in cents (the memory used is about 8 bytes per cent)
+	 * @throws PaymentException
+	 */
+	public PreparedLedger(List<PaymentAmount> duePayments, int maxTarget) throws PaymentException {
+		super();
+		if (duePayments == null) {
+			throw new PaymentException("No due payments");
+		}
+		this.maxTarget = maxTarget;
+		for (PaymentAmount duePayment : duePayments) {
+			add(duePayment);
+		}
+	}
+
+	public int size() {
+		return payments.size();
+	}
+
+	public List<PaymentAmount> getDuePayments() {
+		return Collections.unmodifiableList(payments);
+	}
+
+	/**
+	 * Return the sum of the due payments.
+	 * @return total
+	 */
+	public long getTotal() {
+		return prefixSums[size()];
+	}
+
+	/**
+	 * Add a due payment (newly issued invoice).
+	 * @param duePayment
+	 * @throws PaymentException
+	 */
+	public void add(PaymentAmount duePayment) throws PaymentException {
+		if (duePayment == null) {
+			throw new PaymentException("No due payment");
+		}
+		long amount = duePayment.getAmount();
+		if (amount < 0) {
+			throw new PaymentException("Negative due payment " + duePayment + " is not supported");
+		}
+		int size = size();
+		if (size == cents.length) {
+			cents = Arrays.copyOf(cents, 2 * size);
+			sortedCents = Arrays.copyOf(sortedCents, 2 * size);
+			prefixSums = Arrays.copyOf(prefixSums, 2 * size + 1);
+		}
+
+		payments.add(duePayment);
+		cents[size] = (int) Math.min(amount, Integer.MAX_VALUE);
+
+		// Insert in the sorted amounts.
+		int sortedIndex = upperBound(amount, size);
+		System.arraycopy(sortedCents, sortedIndex, sortedCents, sortedIndex + 1, size - sortedIndex);
+		sortedCents[sortedIndex] = amount;
+		updatePrefixSums(sortedIndex, size + 1);
+
+		if (sums != null) {
+			sums.add(cents[size]);
+		}
+	}
+
+	/**
+	 * Remove a due payment equal to the given one (paid invoice).
+	 * @param duePayment
+	 * @return true if a due payment was removed
+	 */
+	public boolean remove(PaymentAmount duePayment) {
+		int index = payments.indexOf(duePayment);
+		if (index < 0) {
+			return false;
+		}
+		int size = size();
+		long amount = payments.get(index).getAmount();
+		if (sums != null) {
+			sums.remove(cents[index]);
+		}
+		payments.remove(index);
+		System.arraycopy(cents, index + 1, cents, index, size - index - 1);
+
+		// Remove from the sorted amounts.
+		int sortedIndex = upperBound(amount, size) - 1;
+		System.arraycopy(sortedCents, sortedIndex + 1, sortedCents, sortedIndex, size - sortedIndex - 1);
+		updatePrefixSums(sortedIndex, size - 1);
+		return true;
+	}
+
+	/**
+	 * Return a list of due payments for which the sum is equal to the bank transfer.
+	 * @param bankTransfer
+	 * @return foundPayments (null if no solution)
+	 * @throws PaymentException
+	 */
+	public List<PaymentAmount> find(PaymentAmount bankTransfer) throws PaymentException {
+		// Validate parameters.
+		PaymentArrays.validate(bankTransfer, payments);
+
+		long target = bankTransfer.getAmount();
+		if (target == 0) {
+			// It works.
+			return new ArrayList<PaymentAmount>();
+		}
+		if (target < 0 || target > getTotal() || size() == 0 || target < sortedCents[0]) {
+			// No solution.
+			return null;
+		}
+		if (target > maxTarget) {
+			throw new PaymentException("Bank transfer " + bankTransfer + " is above max amount " + PaymentAmount.valueOf(maxTarget) + " for this ledger");
+		}
+
+		// Build or grow the reachable sums (at least doubling, up to the total).
+		if (sums == null || sums.getMaxSum() < target) {
+			int maxSum = (int) (sums == null ? target : Math.min(Math.min(2L * sums.getMaxSum(), getTotal()), maxTarget));
+			sums = new SubsetSumCounts((int) Math.max(maxSum, target));
+			for (int paymentIndex = 0; paymentIndex < size(); paymentIndex++) {
+				sums.add(cents[paymentIndex]);
+			}
+		}
+
+		long[] longCents = new long[size()];
+		for (int paymentIndex = 0; paymentIndex < longCents.length; paymentIndex++) {
+			longCents[paymentIndex] = cents[paymentIndex];
+		}
+		int[] indexes = sums.reconstruct((int) target, cents, PaymentArrays.sortByDecreasingAmount(longCents, target));
+		if (indexes == null) {
+			// No solution.
+			return null;
+		}
+		return PaymentArrays.toPayments(payments, indexes, indexes.length);
+	}
+
+	// Index of the first sorted amount above the given amount.
+	private int upperBound(long amount, int size) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortedCents[middle] <= amount) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void updatePrefixSums(int fromIndex, int size) {
+		for (int index = fromIndex; index < size; index++) {
+			prefixSums[index + 1] = prefixSums[index] + sortedCents[index];
+		}
+	}
+}
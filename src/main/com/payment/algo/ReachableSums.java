@@ -0,0 +1,119 @@
+package com.payment.algo;
+
+/**
+ * Set of the sums reachable with a subset of items, stored as a bitset.
+ * For each reachable sum, the item which reached it first is kept so that
+ * the subset can be rebuilt.
+ *
+ */
+final class ReachableSums {
+	private final int maxSum;
+	private final long[] bits;
+	private final int[] predecessors;
+	private final long lastWordMask;
+
+	/**
+	 * Build an empty set (only the sum 0 is reachable).
+	 * @param maxSum highest sum tracked
+	 */
+	ReachableSums(int maxSum) {
+		this.maxSum = maxSum;
+		this.bits = new long[(maxSum >>> 6) + 1];
+		this.predecessors = new int[maxSum + 1];
+		int lastBits = (maxSum & 63) + 1;
+		this.lastWordMask = lastBits == 64 ? -1L : (1L << lastBits) - 1;
+		bits[0] = 1L;
+		predecessors[0] = -1;
+	}
+
+	int getMaxSum() {
+		return maxSum;
+	}
+
+	boolean isReachable(long sum) {
+		if (sum < 0 || sum > maxSum) {
+			return false;
+		}
+		return (bits[(int) (sum >>> 6)] & (1L << sum)) != 0;
+	}
+
+	/**
+	 * Add an item: every reachable sum s makes s + cents reachable.
+	 * @param itemIndex index of the item, used to rebuild the subsets
+	 * @param cents amount of the item
+	 */
+	void add(int itemIndex, int cents) {
+		if (cents <= 0 || cents > maxSum) {
+			// Nothing new can be reached.
+			return;
+		}
+		int wordShift = cents >>> 6;
+		int bitShift = cents & 63;
+		int lastWord = bits.length - 1;
+
+		// Go down so that the source words are read before being updated.
+		for (int word = lastWord; word >= wordShift; word--) {
+			int source = word - wordShift;
+			long shifted = bits[source] << bitShift;
+			if (bitShift != 0 && source > 0) {
+				shifted |= bits[source - 1] >>> (64 - bitShift);
+			}
+			long added = shifted & ~bits[word];
+			if (word == lastWord) {
+				added &= lastWordMask;
+			}
+			if (added != 0) {
+				bits[word] |= added;
+				int base = word << 6;
+				do {
+					predecessors[base + Long.numberOfTrailingZeros(added)] = itemIndex;
+					added &= added - 1;
+				} while (added != 0);
+			}
+		}
+	}
+
+	/**
+	 * Return the reachable sum the closest to the target, within the tolerance.
+	 * At equal distance, the sum below the target is preferred.
+	 * @param target
+	 * @param tolerance
+	 * @return closest sum, or -1 if no sum within the tolerance
+	 */
+	int closest(long target, long tolerance) {
+		// No sum is below 0 or above maxSum.
+		long distance = Math.max(0, Math.max(target - maxSum, -target));
+		for (; distance <= tolerance && (target - distance >= 0 || target + distance <= maxSum); distance++) {
+			if (isReachable(target - distance)) {
+				return (int) (target - distance);
+			}
+			if (isReachable(target + distance)) {
+				return (int) (target + distance);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Rebuild the items of a reachable sum.
+	 * Each step goes back to a sum reached before the current item, so an item is never used twice.
+	 * @param sum
+	 * @param cents amounts of the items, by item index
+	 * @return item indexes, or null if the sum is not reachable
+	 */
+	int[] reconstruct(int sum, int[] cents) {
+		if (!isReachable(sum)) {
+			return null;
+		}
+		int count = 0;
+		for (int current = sum; current > 0; current -= cents[predecessors[current]]) {
+			count++;
+		}
+		int[] indexes = new int[count];
+		int index = 0;
+		for (int current = sum; current > 0; current -= cents[predecessors[current]]) {
+			indexes[index++] = predecessors[current];
+		}
+		return indexes;
+	}
+}
@@ -0,0 +1,41 @@
+package com.payment.algo;
+
+/**
+ * Limits of a search: duration, number of explored nodes and cancellation token.
+ *
+ */
+public class SearchBudget {
+
+	/**
+	 * No limit.
+	 */
+	public static final SearchBudget UNLIMITED = new SearchBudget(0, 0, null);
+
+	private final long timeoutMillis;
+	private final long maxNodes;
+	private final CancellationToken cancellationToken;
+
+	/**
+	 * @param timeoutMillis max duration in milliseconds (0 for no limit)
+	 * @param maxNodes max number of explored nodes (0 for no limit)
+	 * @param cancellationToken token to cancel the search (may be null)
+	 */
+	public SearchBudget(long timeoutMillis, long maxNodes, CancellationToken cancellationToken) {
+		super();
+		this.timeoutMillis = timeoutMillis;
+		this.maxNodes = maxNodes;
+		this.cancellationToken = cancellationToken;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public long getMaxNodes() {
+		return maxNodes;
+	}
+
+	public CancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+}
@@ -0,0 +1,122 @@
+package com.payment.algo;
+
+import java.util.List;
+
+import com.payment.algo.PaymentSearchResult.Outcome;
+import com.payment.domain.PaymentAmount;
+
+/**
+ * Statistics of one search: what was searched, its outcome and what it cost.
+ *
+ */
+public final class SearchStatistics {
+	private final long bankTransfer;
+	private final int nbDuePayments;
+	private final Outcome outcome;
+	private final long nodes;
+	private final long memoHits;
+	private final long memoMisses;
+	private final int memoSize;
+	private final long prunedBranches;
+	private final int maxDepth;
+	private final long durationNanos;
+
+	SearchStatistics(long bankTransfer, int nbDuePayments, Outcome outcome, long nodes, long memoHits, long memoMisses,
+			int memoSize, long prunedBranches, int maxDepth, long durationNanos) {
+		super();
+		this.bankTransfer = bankTransfer;
+		this.nbDuePayments = nbDuePayments;
+		this.outcome = outcome;
+		this.nodes = nodes;
+		this.memoHits = memoHits;
+		this.memoMisses = memoMisses;
+		this.memoSize = memoSize;
+		this.prunedBranches = prunedBranches;
+		this.maxDepth = maxDepth;
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * Return the statistics of a call which only reports its outcome and duration (no search counters).
+	 * @param bankTransfer
+	 * @param nbDuePayments
+	 * @param payments result of the call (null if no solution)
+	 * @param durationNanos
+	 * @return statistics
+	 */
+	static SearchStatistics ofCall(long bankTransfer, int nbDuePayments, List<PaymentAmount> payments, long durationNanos) {
+		Outcome outcome = payments != null ? Outcome.FOUND : Outcome.PROVEN_NO_SOLUTION;
+		return new SearchStatistics(bankTransfer, nbDuePayments, outcome, 0, 0, 0, 0, 0, 0, durationNanos);
+	}
+
+	/**
+	 * @return bank transfer in cents
+	 */
+	public long getBankTransfer() {
+		return bankTransfer;
+	}
+
+	public int getNbDuePayments() {
+		return nbDuePayments;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return number of explored nodes (nodes visited by the search)
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return number of states found in the failures memo (not searched again)
+	 */
+	public long getMemoHits() {
+		return memoHits;
+	}
+
+	/**
+	 * @return number of states not found in the failures memo
+	 */
+	public long getMemoMisses() {
+		return memoMisses;
+	}
+
+	/**
+	 * @return number of failed states in the memo at the end of the search
+	 */
+	public int getMemoSize() {
+		return memoSize;
+	}
+
+	/**
+	 * @return number of branches cut without being explored (amounts above the bank transfer, sum bound, same amount, gcd)
+	 */
+	public long getPrunedBranches() {
+		return prunedBranches;
+	}
+
+	/**
+	 * @return max depth of the search stack reached
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return wall time of the search in nanoseconds
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "bankTransfer=" + bankTransfer + ", nbDuePayments=" + nbDuePayments + ", outcome=" + outcome + ", nodes=" + nodes
+				+ ", memoHits=" + memoHits + ", memoMisses=" + memoMisses + ", memoSize=" + memoSize + ", prunedBranches=" + prunedBranches
+				+ ", maxDepth=" + maxDepth + ", durationMillis=" + durationNanos / 1000000.0;
+	}
+}
@@ -0,0 +1,20 @@
+package com.payment.algo;
+
+/**
+ * Order in which the matching subsets of due payments are enumerated.
+ *
+ */
+public enum SolutionOrder {
+	/**
+	 * Search order (the fastest).
+	 */
+	ANY,
+	/**
+	 * Fewest due payments first.
+	 */
+	FEWEST_PAYMENTS,
+	/**
+	 * Oldest first: the subsets whose most recent due payment comes first in the due payments list.
+	 */
+	OLDEST_FIRST
+}
@@ -0,0 +1,120 @@
+package com.payment.algo;
+
+import java.util.Arrays;
+
+/**
+ * Number of subsets of items reaching each sum, modulo a large prime, so that an item can be removed as well as added.
+ * A sum is reachable when its count is not 0 (a count which is a multiple of the prime, about 2^61, is taken as 0).
+ *
+ */
+final class SubsetSumCounts {
+	// Mersenne prime 2^61 - 1: the sum of two counts fits in a long.
+	private static final long MODULUS = (1L << 61) - 1;
+
+	private final int maxSum;
+	private final long[] counts;
+
+	/**
+	 * Build an empty set (only the sum 0 is reachable).
+	 * @param maxSum highest sum tracked
+	 */
+	SubsetSumCounts(int maxSum) {
+		this.maxSum = maxSum;
+		this.counts = new long[maxSum + 1];
+		counts[0] = 1;
+	}
+
+	int getMaxSum() {
+		return maxSum;
+	}
+
+	boolean isReachable(long sum) {
+		return sum >= 0 && sum <= maxSum && counts[(int) sum] != 0;
+	}
+
+	/**
+	 * Add an item: every subset reaching s reaches s + cents with the item.
+	 * @param cents amount of the item
+	 */
+	void add(int cents) {
+		if (cents <= 0 || cents > maxSum) {
+			// Nothing new can be reached.
+			return;
+		}
+		// Go down so that the counts without the item are read before being updated.
+		for (int sum = maxSum; sum >= cents; sum--) {
+			counts[sum] = plus(counts[sum], counts[sum - cents]);
+		}
+	}
+
+	/**
+	 * Remove an item added before: the reverse of add.
+	 * @param cents amount of the item
+	 */
+	void remove(int cents) {
+		if (cents <= 0 || cents > maxSum) {
+			// Nothing was reached with it.
+			return;
+		}
+		// Go up so that the counts without the item are read after being updated.
+		for (int sum = cents; sum <= maxSum; sum++) {
+			counts[sum] = minus(counts[sum], counts[sum - cents]);
+		}
+	}
+
+	/**
+	 * Rebuild the items of a reachable sum.
+	 * An item is taken when the sum left can still be reached without it, which is the alternating sum of the counts
+	 * at the sum left minus 1, 2... times its amount; the counts of a copy are then updated to remove it.
+	 * An item which is not taken is in no subset reaching the sum left, so it doesn't need to be removed.
+	 * @param sum
+	 * @param cents amounts of the items, by item index
+	 * @param itemIndexes indexes of the items to try, largest amount first so that the sum left goes down quickly
+	 * @return item indexes, or null if the sum is not reachable
+	 */
+	int[] reconstruct(int sum, int[] cents, int[] itemIndexes) {
+		if (!isReachable(sum)) {
+			return null;
+		}
+		long[] workCounts = counts;
+		int[] indexes = new int[itemIndexes.length];
+		int count = 0;
+		int left = sum;
+		for (int position = 0; position < itemIndexes.length && left > 0; position++) {
+			int itemIndex = itemIndexes[position];
+			int amount = cents[itemIndex];
+			if (amount <= 0 || amount > left) {
+				continue;
+			}
+			long withItem = 0;
+			for (int otherSum = left - amount, sign = 1; otherSum >= 0; otherSum -= amount, sign = -sign) {
+				withItem = sign > 0 ? plus(withItem, workCounts[otherSum]) : minus(withItem, workCounts[otherSum]);
+			}
+			if (withItem != 0) {
+				indexes[count++] = itemIndex;
+				left -= amount;
+				if (workCounts == counts) {
+					workCounts = Arrays.copyOf(counts, left + 1);
+				}
+				for (int otherSum = amount; otherSum <= left; otherSum++) {
+					workCounts[otherSum] = minus(workCounts[otherSum], workCounts[otherSum - amount]);
+				}
+			}
+		}
+		if (left != 0) {
+			// Only if a count was a multiple of the prime.
+			return null;
+		}
+		return Arrays.copyOf(indexes, count);
+	}
+
+	private static long plus(long a, long b) {
+		long sum = a + b;
+		return sum >= MODULUS ? sum - MODULUS : sum;
+	}
+
+	private static long minus(long a, long b) {
+		long difference = a - b;
+		return difference < 0 ? difference + MODULUS : difference;
+	}
+}
@@ -0,0 +1,131 @@
+package com.payment.domain;
+
+/**
+ * Exact parser of decimal amounts into cents, without going through float or double.
+ * Accepts an optional sign, digits with an optional decimal point, and surrounding spaces
+ * ("12", "-3.1", ".25", " 7.50 "). Amounts with more than 2 decimals are rounded half-up (away from zero).
+ * The amounts are 64-bit (up to about 92 thousand trillion dollars).
+ * The characters can be given one by one (so that bytes can be parsed without building a String),
+ * then {@link #getCents()} returns the amount. Parsing allocates nothing unless the amount is malformed.
+ * Not thread-safe.
+ *
+ */
+public final class CentsParser {
+	// States.
+	private static final int START = 0;
+	private static final int INTEGER_PART = 1;
+	private static final int DECIMAL_PART = 2;
+	private static final int END = 3;
+
+	private int state;
+	private boolean negative;
+	private boolean hasDigits;
+	private long value;
+	private int nbDecimals;
+	private boolean roundUp;
+
+	public CentsParser() {
+		super();
+	}
+
+	/**
+	 * Parse a whole amount.
+	 * @param text
+	 * @return amount in cents
+	 * @throws NumberFormatException if the amount is malformed or too large
+	 */
+	public static long parseCents(CharSequence text) throws NumberFormatException {
+		CentsParser parser = new CentsParser();
+		for (int index = 0; index < text.length(); index++) {
+			parser.accept(text.charAt(index));
+		}
+		return parser.getCents();
+	}
+
+	/**
+	 * Start a new amount.
+	 */
+	public void reset() {
+		state = START;
+		negative = false;
+		hasDigits = false;
+		value = 0;
+		nbDecimals = 0;
+		roundUp = false;
+	}
+
+	/**
+	 * Return true if nothing but spaces was given since the last reset.
+	 * @return blank
+	 */
+	public boolean isBlank() {
+		return state == START;
+	}
+
+	/**
+	 * Give the next character of the amount.
+	 * @param character
+	 * @throws NumberFormatException if the amount is malformed or too large
+	 */
+	public void accept(int character) throws NumberFormatException {
+		if (character >= '0' && character <= '9') {
+			int digit = character - '0';
+			if (state == START || state == INTEGER_PART) {
+				state = INTEGER_PART;
+				value = 10 * value + digit;
+				if (value > Long.MAX_VALUE / 100) {
+					throw new NumberFormatException("Amount is too large");
+				}
+			} else if (state == DECIMAL_PART) {
+				if (nbDecimals < 2) {
+					if (value > (Long.MAX_VALUE - digit) / 10) {
+						throw new NumberFormatException("Amount is too large");
+					}
+					value = 10 * value + digit;
+				} else if (nbDecimals == 2) {
+					roundUp = digit >= 5;
+				}
+				nbDecimals++;
+			} else {
+				throw new NumberFormatException("Malformed amount");
+			}
+			hasDigits = true;
+		} else if (character == ' ' || character == '\t' || character == '\r') {
+			if (state == INTEGER_PART || state == DECIMAL_PART) {
+				state = END;
+			}
+		} else if (character == '.' && (state == START || state == INTEGER_PART)) {
+			state = DECIMAL_PART;
+		} else if ((character == '-' || character == '+') && state == START) {
+			negative = character == '-';
+			state = INTEGER_PART;
+		} else {
+			throw new NumberFormatException("Malformed amount");
+		}
+	}
+
+	/**
+	 * Return the amount given since the last reset.
+	 * @return amount in cents
+	 * @throws NumberFormatException if the amount is malformed or too large
+	 */
+	public long getCents() throws NumberFormatException {
+		if (!hasDigits) {
+			throw new NumberFormatException("Malformed amount");
+		}
+		long cents = value;
+		for (int decimal = nbDecimals; decimal < 2; decimal++) {
+			if (cents > Long.MAX_VALUE / 10) {
+				throw new NumberFormatException("Amount is too large");
+			}
+			cents *= 10;
+		}
+		if (roundUp) {
+			if (cents == Long.MAX_VALUE) {
+				throw new NumberFormatException("Amount is too large");
+			}
+			cents++;
+		}
+		return negative ? -cents : cents;
+	}
+}
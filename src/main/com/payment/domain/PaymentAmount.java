@@ -1,16 +1,22 @@
 package com.payment.domain;
 
 /**
- * Payment amount
+ * Payment amount, in cents.
+ * The instances built by {@link #valueOf(long)} (and {@link #parse(String)}, {@link #plus(PaymentAmount)},
+ * {@link #minus(PaymentAmount)}) are immutable: they can be shared between lists and threads,
+ * and the common amounts are cached. The constructors still build mutable instances.
  *
  */
 public class PaymentAmount implements Comparable<PaymentAmount>{
-	private int amount;
+	// Cached immutable values: 0 to 99.99 dollars.
+	private static final int CACHE_SIZE = 10000;
+
+	private long amount;
 
 	public PaymentAmount() {
 		this(0);
 	}
-	public PaymentAmount(int amount) {
+	public PaymentAmount(long amount) {
 		super();
 		this.amount = amount;
 	}
@@ -20,14 +26,63 @@ public class PaymentAmount implements Comparable<PaymentAmount>{
 		this.amount = convertToInt(amount);
 	}
 	
+	/**
+	 * Build a payment amount from its decimal text ("74.06"), without float rounding.
+	 * @param text
+	 * @return paymentAmount
+	 * @throws NumberFormatException if the amount is malformed or too large
+	 * @see CentsParser
+	 */
+	public static PaymentAmount parse(String text) throws NumberFormatException {
+		return valueOf(CentsParser.parseCents(text));
+	}
+	
+	/**
+	 * Return an immutable payment amount, cached for the common amounts.
+	 * @param amount in cents
+	 * @return paymentAmount
+	 */
+	public static PaymentAmount valueOf(long amount) {
+		if (amount >= 0 && amount < CACHE_SIZE) {
+			return Cache.VALUES[(int) amount];
+		}
+		return new ImmutablePaymentAmount(amount);
+	}
+	
 	public static int convertToInt(float amount) {
 		return (int)Math.rint(amount * 100.0);
 	}
 
-	public int getAmount() {
+	public long getAmount() {
 		return amount;
 	}
 
+	/**
+	 * Return true if the mutators can be called on this instance.
+	 * @return mutable
+	 */
+	public boolean isMutable() {
+		return true;
+	}
+
+	/**
+	 * Return the sum of this amount and the given one, without changing any of them.
+	 * @param newAmount
+	 * @return immutable paymentAmount
+	 */
+	public PaymentAmount plus(PaymentAmount newAmount) {
+		return valueOf(amount + newAmount.amount);
+	}
+
+	/**
+	 * Return this amount minus the given one, without changing any of them.
+	 * @param newAmount
+	 * @return immutable paymentAmount
+	 */
+	public PaymentAmount minus(PaymentAmount newAmount) {
+		return valueOf(amount - newAmount.amount);
+	}
+
 	public void addAmount(PaymentAmount newAmount) {
 		this.amount += newAmount.amount;
 	}
@@ -40,14 +95,15 @@ public class PaymentAmount implements Comparable<PaymentAmount>{
 		this.amount = convertToInt(amount);
 	}
 	
-	public void setAmount(int amount) {
+	public void setAmount(long amount) {
 		this.amount = amount;
 	}
 	
 	public String toString() {
-		float floatValue = amount / 100.0f;
-		String floatValueStr = String.format("%.2f", floatValue);
-		return floatValueStr;
+		// Exact for any amount (a float keeps only about 7 digits).
+		long units = Math.abs(amount / 100);
+		long cents = Math.abs(amount % 100);
+		return (amount < 0 ? "-" : "") + units + (cents < 10 ? ".0" : ".") + cents;
 	}
 
 	public int compareTo(PaymentAmount paymentAmount2) {
@@ -64,7 +120,7 @@ public class PaymentAmount implements Comparable<PaymentAmount>{
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + amount;
+		result = prime * result + (int) (amount ^ (amount >>> 32));
 		return result;
 	}
 
@@ -74,11 +130,58 @@ public class PaymentAmount implements Comparable<PaymentAmount>{
 			return true;
 		if (obj == null)
 			return false;
-		if (getClass() != obj.getClass())
+		// Mutable and immutable instances of the same amount are equal.
+		if (!(obj instanceof PaymentAmount))
 			return false;
 		PaymentAmount other = (PaymentAmount) obj;
 		if (amount != other.amount)
 			return false;
 		return true;
 	}	
+
+	/**
+	 * Payment amount whose mutators throw UnsupportedOperationException.
+	 */
+	private static final class ImmutablePaymentAmount extends PaymentAmount {
+
+		ImmutablePaymentAmount(long amount) {
+			super(amount);
+		}
+
+		@Override
+		public boolean isMutable() {
+			return false;
+		}
+
+		@Override
+		public void addAmount(PaymentAmount newAmount) {
+			throw new UnsupportedOperationException("Immutable payment amount " + this);
+		}
+
+		@Override
+		public void substractAmount(PaymentAmount newAmount) {
+			throw new UnsupportedOperationException("Immutable payment amount " + this);
+		}
+
+		@Override
+		public void setAmount(float amount) {
+			throw new UnsupportedOperationException("Immutable payment amount " + this);
+		}
+
+		@Override
+		public void setAmount(long amount) {
+			throw new UnsupportedOperationException("Immutable payment amount " + this);
+		}
+	}
+
+	// Built on the first call of valueOf (class initialization publishes the values safely to all threads).
+	private static final class Cache {
+		static final PaymentAmount[] VALUES = new PaymentAmount[CACHE_SIZE];
+
+		static {
+			for (int amount = 0; amount < CACHE_SIZE; amount++) {
+				VALUES[amount] = new ImmutablePaymentAmount(amount);
+			}
+		}
+	}
 }
@@ -1,8 +1,6 @@
 package com.payment.main;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -10,8 +8,9 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.payment.algo.FindPaymentCalculator;
+import com.payment.algo.AdaptivePaymentCalculator;
 import com.payment.algo.IFindPaymentCalculator;
+import com.payment.algo.PaymentCalculatorEngine;
 import com.payment.domain.PaymentAmount;
 import com.payment.exception.PaymentException;
 
@@ -21,9 +20,7 @@ public class FindPaymentApp {
 	private PaymentAmount bankTransfer;
 	private List<PaymentAmount> duePayments;
 	private IFindPaymentCalculator calculator;
-	
-	// Bank transfer max value is 10000 dollars.
-	private static final double MAX_VALUE = 10000;
+	private int toleranceCents;
 	
 	/**
 	 * Logger
@@ -33,6 +30,8 @@ public class FindPaymentApp {
 	/**
 	 * Param 1: input file
 	 * Param 2: output file
+	 * Param 3: calculator engine (ADAPTIVE, SEARCH, DYNAMIC_PROGRAMMING, MEET_IN_THE_MIDDLE, MULTISET or PARALLEL)
+	 * Param 4: tolerance in cents for a closest match (default: 0, exact match)
 	 * @param args
 	 */
 	public static void main(String[] args) {
@@ -45,10 +44,30 @@ public class FindPaymentApp {
 		if (logger.isLoggable(Level.INFO)) {
 			logger.log(Level.INFO, "Ouput file is " + outputFile);
 		}
+		String engine = args.length >= 3 ? args[2] : PaymentCalculatorEngine.ADAPTIVE.name();
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Calculator engine is " + engine);
+		}
+		String tolerance = args.length >= 4 ? args[3] : "0";
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Tolerance is " + tolerance + " cents");
+		}
 		
 		// Find the payments.
 		try {
-			FindPaymentApp findPaymentApp = new FindPaymentApp(inputFile, outputFile);
+			IFindPaymentCalculator calculator;
+			try {
+				calculator = PaymentCalculatorEngine.valueOf(engine.toUpperCase()).createCalculator();
+			} catch (IllegalArgumentException e) {
+				throw new PaymentException("Unknown calculator engine: " + engine, e);
+			}
+			int toleranceCents;
+			try {
+				toleranceCents = Integer.parseInt(tolerance);
+			} catch (NumberFormatException e) {
+				throw new PaymentException("Can't parse tolerance: " + tolerance, e);
+			}
+			FindPaymentApp findPaymentApp = new FindPaymentApp(inputFile, outputFile, calculator, toleranceCents);
 
 			findPaymentApp.writeResult();
 		} catch (PaymentException e) {
@@ -63,16 +82,48 @@ public class FindPaymentApp {
 	 * @throws PaymentException
 	 */
 	public FindPaymentApp(String inputFile, String outputFile) throws PaymentException {
+		this(inputFile, outputFile, new AdaptivePaymentCalculator());
+	}
+
+	/**
+	 * Build an instance of the application from the input and output files, with a given calculator.
+	 * @param inputFile
+	 * @param outputFile
+	 * @param calculator
+	 * @throws PaymentException
+	 */
+	public FindPaymentApp(String inputFile, String outputFile, IFindPaymentCalculator calculator) throws PaymentException {
+		this(inputFile, outputFile, calculator, 0);
+	}
+
+	/**
+	 * Build an instance of the application which looks for the closest match within a tolerance.
+	 * @param inputFile
+	 * @param outputFile
+	 * @param calculator
+	 * @param toleranceCents max difference in cents between the found payments and the bank transfer
+	 * @throws PaymentException
+	 */
+	public FindPaymentApp(String inputFile, String outputFile, IFindPaymentCalculator calculator, int toleranceCents) throws PaymentException {
 		super();
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
 		this.inputFile = inputFile;
 		this.outputFile = outputFile;
-		this.bankTransfer = new PaymentAmount();
+		this.bankTransfer = PaymentAmount.valueOf(0);
 		this.duePayments = new ArrayList<PaymentAmount>();
-		this.calculator = new FindPaymentCalculator();
+		this.calculator = calculator;
+		this.toleranceCents = toleranceCents;
 
 	}
 
-	public void writeResult() throws PaymentException {
+	/**
+	 * Read the input file, find the payments and write them into the output file.
+	 * @return found payments (null if no solution)
+	 * @throws PaymentException
+	 */
+	public List<PaymentAmount> writeResult() throws PaymentException {
 		// Read input data and create BankTransfer and DuePayments.
 		readInputFile();
 		
@@ -89,50 +140,27 @@ public class FindPaymentApp {
 		
 		// Write the result in the output file.
 		writeOutputFile(payments);
+		return payments;
 	}
 	
 	private void readInputFile() throws PaymentException {
-		BufferedReader inputReader = null;
-		try {
-			// Read line by line.
-			inputReader = new BufferedReader(new FileReader(inputFile));
-			String line;
-			int lineIndex = 1;
-			while ((line = inputReader.readLine()) != null) {
-				// Process the line.
-				if (lineIndex == 1) {
-					// This is the bank transfer.
-					float bankTransferAmount = Float.parseFloat(line);
-					if (bankTransferAmount > MAX_VALUE) {
-						throw new PaymentException("Bank transfer " + bankTransferAmount + " is above max accepted amount 10000 dollars");
-					}
-					bankTransfer.setAmount(bankTransferAmount);
-				} else {
-					// This is a due payment.
-					float duePaymentAmount = Float.parseFloat(line);
-					// Accept only due values below bank tranfer max (skip if above).
-					if (duePaymentAmount <= MAX_VALUE) {
-						duePayments.add(new PaymentAmount(duePaymentAmount));
-					}
-				}
-				lineIndex++;
-			}
-		} catch (IOException e) {
-			throw new PaymentException("Can't read input file: " + inputFile, e);
-		} catch (NumberFormatException e) {
-			throw new PaymentException("Can't parse correctly amounts in file", e);
-		} finally {
-			if (inputReader != null) {
-				try {
-					inputReader.close();
-				} catch (IOException e) {
-					throw new PaymentException("Can't close input file: " + inputFile, e);
-				}
-			}
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile);
+		ledgerReader.read();
+
+		// This is the bank transfer.
+		bankTransfer = PaymentAmount.valueOf(ledgerReader.getBankTransfer());
+
+		// These are the due payments.
+		long[] duePaymentAmounts = ledgerReader.getDuePayments();
+		for (int paymentIndex = 0; paymentIndex < duePaymentAmounts.length; paymentIndex++) {
+			duePayments.add(PaymentAmount.valueOf(duePaymentAmounts[paymentIndex]));
 		}
 	}
 	
 	private List<PaymentAmount> findPayment() throws PaymentException {
+		if (toleranceCents > 0) {
+			return calculator.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+		}
 		return calculator.findPayments(bankTransfer, duePayments);
 	}
 	
@@ -166,11 +194,11 @@ public class FindPaymentApp {
 	}
 	
 	private boolean checkResult(List<PaymentAmount> results) {
-		PaymentAmount sum = new PaymentAmount(0);
+		PaymentAmount sum = PaymentAmount.valueOf(0);
 		for (int resultIndex = 0; resultIndex < results.size(); resultIndex++) {
 			PaymentAmount paymentAmount = results.get(resultIndex);
-			sum.addAmount(paymentAmount);
+			sum = sum.plus(paymentAmount);
 		}
-		return bankTransfer.equals(sum);
+		return Math.abs(bankTransfer.getAmount() - sum.getAmount()) <= toleranceCents;
 	}
 }
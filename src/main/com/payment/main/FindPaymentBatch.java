@@ -0,0 +1,293 @@
+package com.payment.main;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.payment.algo.IFindPaymentCalculator;
+import com.payment.algo.ParallelPaymentCalculator;
+import com.payment.algo.PaymentCalculatorEngine;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Batch mode of the application: many input files in one process (so one JVM start for the whole run).
+ * The files are processed by a fixed number of threads, each with its own calculator (closed at the end of the run);
+ * the output of each file is written beside it (input file name + ".out"). A failing file is counted and reported
+ * in the summary, without stopping the other ones.
+ *
+ */
+public class FindPaymentBatch {
+	/**
+	 * Suffix of the output files (the input files with this suffix are skipped).
+	 */
+	public static final String OUTPUT_SUFFIX = ".out";
+
+	private final List<File> inputFiles;
+	private final PaymentCalculatorEngine engine;
+	private final int toleranceCents;
+	private final int nbThreads;
+
+	// Summary.
+	private int nbSolved;
+	private int nbNoSolution;
+	private final Map<File, String> failures = new LinkedHashMap<File, String>();
+	private long duration;
+
+	/**
+	 * Logger
+	 */
+	private static Logger logger = Logger.getLogger(FindPaymentBatch.class.getSimpleName());
+
+	/**
+	 * Param 1: input directory, or files pattern with * and ? in the file name ("ledgers/*.txt")
+	 * Param 2: calculator engine (default: ADAPTIVE)
+	 * Param 3: tolerance in cents for a closest match (default: 0, exact match)
+	 * Param 4: number of threads (default: number of processors)
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String input = args.length >= 1 ? args[0] : ".";
+		String engine = args.length >= 2 ? args[1] : PaymentCalculatorEngine.ADAPTIVE.name();
+		String tolerance = args.length >= 3 ? args[2] : "0";
+		String threads = args.length >= 4 ? args[3] : String.valueOf(Runtime.getRuntime().availableProcessors());
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Input is " + input + ", calculator engine is " + engine + ", tolerance is " + tolerance + " cents, threads: " + threads);
+		}
+
+		try {
+			PaymentCalculatorEngine calculatorEngine;
+			try {
+				calculatorEngine = PaymentCalculatorEngine.valueOf(engine.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new PaymentException("Unknown calculator engine: " + engine, e);
+			}
+			int toleranceCents;
+			int nbThreads;
+			try {
+				toleranceCents = Integer.parseInt(tolerance);
+				nbThreads = Integer.parseInt(threads);
+			} catch (NumberFormatException e) {
+				throw new PaymentException("Can't parse tolerance or threads: " + tolerance + ", " + threads, e);
+			}
+			FindPaymentBatch batch = new FindPaymentBatch(listInputFiles(input), calculatorEngine, toleranceCents, nbThreads);
+
+			batch.run();
+			System.out.println(batch.getSummary());
+			if (!batch.getFailures().isEmpty()) {
+				System.exit(1);
+			}
+		} catch (PaymentException e) {
+			logger.log(Level.SEVERE, e.getMessage(), e);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Build a batch on the given input files.
+	 * @param inputFiles
+	 * @param engine calculator engine (one calculator is created per thread)
+	 * @param toleranceCents max difference in cents between the found payments and the bank transfer
+	 * @param nbThreads number of files processed at the same time
+	 * @throws PaymentException
+	 */
+	public FindPaymentBatch(List<File> inputFiles, PaymentCalculatorEngine engine, int toleranceCents, int nbThreads) throws PaymentException {
+		super();
+		if (toleranceCents < 0) {
+			throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+		}
+		if (nbThreads <= 0) {
+			throw new PaymentException("Number of threads " + nbThreads + " must be positive");
+		}
+		this.inputFiles = new ArrayList<File>(inputFiles);
+		this.engine = engine;
+		this.toleranceCents = toleranceCents;
+		this.nbThreads = nbThreads;
+	}
+
+	/**
+	 * Return the input files of a directory, or of a pattern whose file name may contain * and ?,
+	 * sorted by name. The output files are skipped.
+	 * @param input directory or files pattern
+	 * @return inputFiles
+	 * @throws PaymentException if the directory does not exist
+	 */
+	public static List<File> listInputFiles(String input) throws PaymentException {
+		File inputFile = new File(input);
+		File directory;
+		final Pattern namePattern;
+		if (inputFile.isDirectory()) {
+			directory = inputFile;
+			namePattern = null;
+		} else {
+			directory = inputFile.getAbsoluteFile().getParentFile();
+			namePattern = Pattern.compile(globToRegex(inputFile.getName()));
+		}
+		File[] files = directory.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && !file.getName().endsWith(OUTPUT_SUFFIX)
+						&& (namePattern == null || namePattern.matcher(file.getName()).matches());
+			}
+		});
+		if (files == null) {
+			throw new PaymentException("Can't list input directory: " + directory);
+		}
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+
+	/**
+	 * Process all the files, then fill the summary.
+	 * @throws PaymentException if the batch is interrupted
+	 */
+	public void run() throws PaymentException {
+		long startTime = System.currentTimeMillis();
+		final List<IFindPaymentCalculator> createdCalculators = Collections.synchronizedList(new ArrayList<IFindPaymentCalculator>());
+		final ThreadLocal<IFindPaymentCalculator> calculators = new ThreadLocal<IFindPaymentCalculator>() {
+
+			@Override
+			protected IFindPaymentCalculator initialValue() {
+				IFindPaymentCalculator calculator = engine.createCalculator();
+				createdCalculators.add(calculator);
+				return calculator;
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(nbThreads, inputFiles.size())));
+		try {
+			List<Future<List<PaymentAmount>>> futures = new ArrayList<Future<List<PaymentAmount>>>(inputFiles.size());
+			for (final File inputFile : inputFiles) {
+				futures.add(executor.submit(new Callable<List<PaymentAmount>>() {
+
+					@Override
+					public List<PaymentAmount> call() throws PaymentException {
+						FindPaymentApp findPaymentApp = new FindPaymentApp(inputFile.getPath(), getOutputFile(inputFile).getPath(), calculators.get(), toleranceCents);
+						return findPaymentApp.writeResult();
+					}
+				}));
+			}
+
+			// Collect the outcomes, in the order of the files.
+			for (int fileIndex = 0; fileIndex < inputFiles.size(); fileIndex++) {
+				File inputFile = inputFiles.get(fileIndex);
+				try {
+					if (futures.get(fileIndex).get() != null) {
+						nbSolved++;
+					} else {
+						nbNoSolution++;
+					}
+				} catch (ExecutionException e) {
+					// This file only.
+					Throwable cause = e.getCause();
+					failures.put(inputFile, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+					logger.log(Level.SEVERE, "Failed on input file " + inputFile, cause);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PaymentException("Batch interrupted", e);
+		} finally {
+			executor.shutdownNow();
+			close(createdCalculators);
+		}
+		duration = System.currentTimeMillis() - startTime;
+	}
+
+	// Stop the threads of the calculators which have some.
+	private static void close(List<IFindPaymentCalculator> calculators) {
+		synchronized (calculators) {
+			for (IFindPaymentCalculator calculator : calculators) {
+				if (calculator instanceof ParallelPaymentCalculator) {
+					((ParallelPaymentCalculator) calculator).close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the output file of an input file (beside it).
+	 * @param inputFile
+	 * @return outputFile
+	 */
+	public static File getOutputFile(File inputFile) {
+		return new File(inputFile.getPath() + OUTPUT_SUFFIX);
+	}
+
+	public int getNbFiles() {
+		return inputFiles.size();
+	}
+
+	public int getNbSolved() {
+		return nbSolved;
+	}
+
+	public int getNbNoSolution() {
+		return nbNoSolution;
+	}
+
+	/**
+	 * Return the error message of each failed file.
+	 * @return failures
+	 */
+	public Map<File, String> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Return the duration of the run in milliseconds.
+	 * @return duration
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Return the aggregate summary of the run.
+	 * @return summary
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append("Files: ").append(getNbFiles()).append(", solved: ").append(nbSolved).append(", no solution: ").append(nbNoSolution)
+				.append(", failed: ").append(failures.size()).append(", duration (in seconds): ").append(duration / 1000.0);
+		for (Map.Entry<File, String> failure : failures.entrySet()) {
+			summary.append(System.getProperty("line.separator")).append("FAILED ").append(failure.getKey()).append(": ").append(failure.getValue());
+		}
+		return summary.toString();
+	}
+
+	// Glob of a file name: * is any characters, ? is one character, the others are literal.
+	private static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for (int index = 0; index < glob.length(); index++) {
+			char character = glob.charAt(index);
+			if (character == '*' || character == '?') {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(character == '*' ? ".*" : ".");
+			} else {
+				literal.append(character);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return regex.toString();
+	}
+}
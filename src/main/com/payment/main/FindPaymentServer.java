@@ -0,0 +1,471 @@
+package com.payment.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.payment.algo.FindPaymentCalculator;
+import com.payment.algo.IBudgetedFindPaymentCalculator;
+import com.payment.algo.IFindPaymentCalculator;
+import com.payment.algo.IMeteredFindPaymentCalculator;
+import com.payment.algo.PaymentCalculatorEngine;
+import com.payment.algo.PaymentCalculatorStats;
+import com.payment.algo.PaymentSearchResult;
+import com.payment.algo.PaymentSearchResult.Outcome;
+import com.payment.algo.SearchBudget;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+/**
+ * Server mode of the application: a long-running process answering reconciliation requests
+ * on a local TCP port, with calculators kept (and warmed up) in memory.
+ * <p>
+ * Protocol: one request per line, one response line per request, several requests per connection.
+ * <ul>
+ * <li>FIND bankTransfer duePayment1 duePayment2 ... (amounts in dollars, "74.06")</li>
+ * <li>CLOSEST toleranceCents bankTransfer duePayment1 duePayment2 ...</li>
+ * <li>QUIT closes the connection</li>
+ * </ul>
+ * Responses: "OK payment1 payment2 ...", "NO SOLUTION", "GAVE UP" when the search runs out of time
+ * (FIND requests: calculators with a budget only), "ERROR message", or "BUSY" (then the connection is closed)
+ * when all the worker threads are taken and the waiting queue is full.
+ * The CLOSEST requests always run within the request timeout: the calculators without a budget leave them
+ * to the closest search of the SEARCH engine.
+ * A request longer than {@link #MAX_REQUEST_LENGTH} characters gets an ERROR, then the connection is closed.
+ * <p>
+ * Each connection is served by one worker thread of a fixed pool, with its own calculator.
+ * An idle connection keeps its worker until the read timeout, so the clients are expected to reconnect rather than wait.
+ * The statistics of the searches are added up in a {@link PaymentCalculatorStats} registered in JMX while started.
+ *
+ */
+public class FindPaymentServer {
+	public static final int DEFAULT_PORT = 7406;
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+	public static final int DEFAULT_READ_TIMEOUT = 5000;
+	public static final int DEFAULT_REQUEST_TIMEOUT = 10000;
+	public static final int MAX_REQUEST_LENGTH = 1 << 20;
+	private static final int WARM_UP_PAYMENTS = 20;
+
+	private final int port;
+	private final PaymentCalculatorEngine engine;
+	private final ThreadPoolExecutor executor;
+	private final int readTimeout;
+	private final int requestTimeout;
+	private final ThreadLocal<IFindPaymentCalculator> calculators;
+	// Closest match of the calculators without a budget.
+	private final ThreadLocal<IBudgetedFindPaymentCalculator> closestCalculators;
+	private final PaymentCalculatorStats stats = new PaymentCalculatorStats();
+	private final Set<Socket> connections = Collections.synchronizedSet(new HashSet<Socket>());
+	private ServerSocket serverSocket;
+	private Thread acceptThread;
+	private volatile boolean stopped;
+
+	/**
+	 * Logger
+	 */
+	private static Logger logger = Logger.getLogger(FindPaymentServer.class.getSimpleName());
+
+	/**
+	 * Param 1: port (default: 7406)
+	 * Param 2: calculator engine (default: ADAPTIVE)
+	 * Param 3: number of worker threads (default: number of processors)
+	 * Param 4: number of connections waiting for a worker (default: 100)
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String port = args.length >= 1 ? args[0] : String.valueOf(DEFAULT_PORT);
+		String engine = args.length >= 2 ? args[1] : PaymentCalculatorEngine.ADAPTIVE.name();
+		String threads = args.length >= 3 ? args[2] : String.valueOf(Runtime.getRuntime().availableProcessors());
+		String queueSize = args.length >= 4 ? args[3] : String.valueOf(DEFAULT_QUEUE_SIZE);
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Port is " + port + ", calculator engine is " + engine + ", threads: " + threads + ", queue size: " + queueSize);
+		}
+
+		try {
+			PaymentCalculatorEngine calculatorEngine;
+			try {
+				calculatorEngine = PaymentCalculatorEngine.valueOf(engine.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new PaymentException("Unknown calculator engine: " + engine, e);
+			}
+			FindPaymentServer server;
+			try {
+				server = new FindPaymentServer(Integer.parseInt(port), calculatorEngine, Integer.parseInt(threads), Integer.parseInt(queueSize), DEFAULT_READ_TIMEOUT,
+						DEFAULT_REQUEST_TIMEOUT);
+			} catch (NumberFormatException e) {
+				throw new PaymentException("Can't parse port, threads or queue size: " + port + ", " + threads + ", " + queueSize, e);
+			}
+			server.warmUp(1000);
+			server.start();
+		} catch (PaymentException e) {
+			logger.log(Level.SEVERE, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Build a server (not started).
+	 * @param port local port (0 for any free port)
+	 * @param engine calculator engine (one calculator per worker thread)
+	 * @param nbThreads number of connections served at the same time
+	 * @param queueSize number of connections waiting for a worker thread, the others get BUSY
+	 * @param readTimeout max idle time of a connection in milliseconds (0 for no limit)
+	 * @param requestTimeout max duration of the search of a request in milliseconds (0 for no limit)
+	 * @throws PaymentException
+	 */
+	public FindPaymentServer(int port, final PaymentCalculatorEngine engine, int nbThreads, int queueSize, int readTimeout, int requestTimeout)
+			throws PaymentException {
+		super();
+		if (nbThreads <= 0 || queueSize <= 0) {
+			throw new PaymentException("Number of threads " + nbThreads + " and queue size " + queueSize + " must be positive");
+		}
+		this.port = port;
+		this.engine = engine;
+		this.readTimeout = readTimeout;
+		this.requestTimeout = requestTimeout;
+		this.calculators = new ThreadLocal<IFindPaymentCalculator>() {
+
+			@Override
+			protected IFindPaymentCalculator initialValue() {
+				IFindPaymentCalculator calculator = engine.createCalculator();
+				if (calculator instanceof IMeteredFindPaymentCalculator) {
+					((IMeteredFindPaymentCalculator) calculator).setMetrics(stats);
+				}
+				return calculator;
+			}
+		};
+		this.closestCalculators = new ThreadLocal<IBudgetedFindPaymentCalculator>() {
+
+			@Override
+			protected IBudgetedFindPaymentCalculator initialValue() {
+				FindPaymentCalculator calculator = new FindPaymentCalculator();
+				calculator.setMetrics(stats);
+				return calculator;
+			}
+		};
+		this.executor = new ThreadPoolExecutor(nbThreads, nbThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new WorkerThreadFactory());
+		this.executor.prestartAllCoreThreads();
+	}
+
+	/**
+	 * Run random requests on a calculator of the engine so that the JIT compiles the search
+	 * before the first real request.
+	 * @param nbRequests
+	 * @throws PaymentException
+	 */
+	public void warmUp(int nbRequests) throws PaymentException {
+		long startTime = System.currentTimeMillis();
+		IFindPaymentCalculator calculator = engine.createCalculator();
+		Random random = new Random(42);
+		for (int request = 0; request < nbRequests; request++) {
+			List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>(WARM_UP_PAYMENTS);
+			long total = 0;
+			for (int paymentIndex = 0; paymentIndex < WARM_UP_PAYMENTS; paymentIndex++) {
+				long amount = 1 + random.nextInt(10000);
+				duePayments.add(PaymentAmount.valueOf(amount));
+				total += amount;
+			}
+			calculator.findPayments(PaymentAmount.valueOf(random.nextInt((int) total)), duePayments);
+		}
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Warm-up (in seconds): " + (System.currentTimeMillis() - startTime) / 1000.0);
+		}
+	}
+
+	/**
+	 * Open the port and accept the connections in a background thread.
+	 * @throws PaymentException if the port can't be opened
+	 */
+	public synchronized void start() throws PaymentException {
+		try {
+			serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+		} catch (IOException e) {
+			throw new PaymentException("Can't open port " + port, e);
+		}
+		try {
+			stats.register("server-" + serverSocket.getLocalPort());
+		} catch (PaymentException e) {
+			close(serverSocket);
+			serverSocket = null;
+			throw e;
+		}
+		acceptThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "payment-server-accept");
+		acceptThread.start();
+		if (logger.isLoggable(Level.INFO)) {
+			logger.log(Level.INFO, "Listening on port " + getPort());
+		}
+	}
+
+	/**
+	 * Return the local port (known once started, useful with port 0).
+	 * @return port
+	 */
+	public synchronized int getPort() {
+		return serverSocket != null ? serverSocket.getLocalPort() : port;
+	}
+
+	/**
+	 * Return the statistics of the searches.
+	 * @return stats
+	 */
+	public PaymentCalculatorStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Close the port, stop the worker threads and wait for them.
+	 * @throws PaymentException if interrupted
+	 */
+	public void stop() throws PaymentException {
+		stopped = true;
+		synchronized (this) {
+			if (serverSocket != null) {
+				close(serverSocket);
+			}
+		}
+		stats.unregister();
+		executor.shutdownNow();
+		synchronized (connections) {
+			// Unblock the workers waiting for a request.
+			for (Socket socket : connections) {
+				close(socket);
+			}
+		}
+		try {
+			executor.awaitTermination(readTimeout > 0 ? readTimeout : Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			if (acceptThread != null) {
+				acceptThread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PaymentException("Stop interrupted", e);
+		}
+	}
+
+	/**
+	 * Answer one request line with the calculator of the current thread.
+	 * @param request
+	 * @return response line
+	 */
+	public String handle(String request) {
+		String[] tokens = request.trim().split("\\s+");
+		try {
+			int firstAmount;
+			int toleranceCents = 0;
+			if (tokens[0].equalsIgnoreCase("FIND")) {
+				firstAmount = 1;
+			} else if (tokens[0].equalsIgnoreCase("CLOSEST") && tokens.length >= 2) {
+				try {
+					toleranceCents = Integer.parseInt(tokens[1]);
+				} catch (NumberFormatException e) {
+					throw new PaymentException("Can't parse tolerance: " + tokens[1], e);
+				}
+				if (toleranceCents < 0) {
+					throw new PaymentException("Negative tolerance " + toleranceCents + " is not supported");
+				}
+				firstAmount = 2;
+			} else {
+				throw new PaymentException("Unknown request: " + tokens[0]);
+			}
+			if (tokens.length <= firstAmount) {
+				throw new PaymentException("No bank transfer");
+			}
+
+			// Amounts.
+			PaymentAmount bankTransfer = parse(tokens[firstAmount]);
+			List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>(tokens.length - firstAmount - 1);
+			for (int tokenIndex = firstAmount + 1; tokenIndex < tokens.length; tokenIndex++) {
+				duePayments.add(parse(tokens[tokenIndex]));
+			}
+
+			// Find the payments, within the request timeout when the calculator supports a budget.
+			IFindPaymentCalculator calculator = calculators.get();
+			List<PaymentAmount> payments;
+			if (toleranceCents > 0) {
+				IBudgetedFindPaymentCalculator closestCalculator = calculator instanceof IBudgetedFindPaymentCalculator
+						? (IBudgetedFindPaymentCalculator) calculator : closestCalculators.get();
+				PaymentSearchResult searchResult = closestCalculator.findClosestPayments(bankTransfer, duePayments, toleranceCents,
+						new SearchBudget(requestTimeout, 0, null));
+				if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+					return "GAVE UP";
+				}
+				payments = searchResult.getPayments();
+			} else if (calculator instanceof IBudgetedFindPaymentCalculator) {
+				PaymentSearchResult searchResult = ((IBudgetedFindPaymentCalculator) calculator).findPayments(bankTransfer, duePayments,
+						new SearchBudget(requestTimeout, 0, null));
+				if (searchResult.getOutcome() == Outcome.GAVE_UP) {
+					return "GAVE UP";
+				}
+				payments = searchResult.getPayments();
+			} else {
+				payments = calculator.findPayments(bankTransfer, duePayments);
+			}
+			if (payments == null) {
+				// No solution.
+				return "NO SOLUTION";
+			}
+			StringBuilder response = new StringBuilder("OK");
+			for (PaymentAmount payment : payments) {
+				response.append(' ').append(payment);
+			}
+			return response.toString();
+		} catch (PaymentException e) {
+			return "ERROR " + e.getMessage();
+		} catch (RuntimeException e) {
+			logger.log(Level.SEVERE, "Failed on request " + request, e);
+			return "ERROR " + e;
+		}
+	}
+
+	private static PaymentAmount parse(String amount) throws PaymentException {
+		try {
+			return PaymentAmount.parse(amount);
+		} catch (NumberFormatException e) {
+			throw new PaymentException("Can't parse amount: " + amount, e);
+		}
+	}
+
+	private void accept() {
+		while (!stopped) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (!stopped) {
+					logger.log(Level.SEVERE, "Can't accept connection", e);
+				}
+				return;
+			}
+			try {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// Back pressure: all the workers are taken and the queue is full.
+				reply(socket, "BUSY");
+				close(socket);
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		connections.add(socket);
+		try {
+			socket.setSoTimeout(readTimeout);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+			String request;
+			while (!stopped && (request = readRequest(reader)) != null) {
+				if (request.trim().length() == 0) {
+					continue;
+				}
+				if (request.trim().equalsIgnoreCase("QUIT")) {
+					break;
+				}
+				writer.write(handle(request));
+				writer.write("\n");
+				writer.flush();
+			}
+		} catch (SocketTimeoutException e) {
+			// Idle connection: give the worker back.
+		} catch (PaymentException e) {
+			// Request too long: the rest of the line is not read.
+			reply(socket, "ERROR " + e.getMessage());
+		} catch (IOException e) {
+			if (!stopped) {
+				logger.log(Level.WARNING, "Connection failed", e);
+			}
+		} finally {
+			connections.remove(socket);
+			close(socket);
+		}
+	}
+
+	// Read a line, as BufferedReader.readLine but at most MAX_REQUEST_LENGTH characters.
+	private static String readRequest(Reader reader) throws IOException, PaymentException {
+		StringBuilder request = new StringBuilder();
+		int character;
+		while ((character = reader.read()) != -1 && character != '\n') {
+			if (request.length() == MAX_REQUEST_LENGTH) {
+				throw new PaymentException("Request longer than " + MAX_REQUEST_LENGTH + " characters");
+			}
+			request.append((char) character);
+		}
+		if (character == -1 && request.length() == 0) {
+			// End of the connection.
+			return null;
+		}
+		return request.toString();
+	}
+
+	private static void reply(Socket socket, String response) {
+		try {
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+			writer.write(response);
+			writer.write("\n");
+			writer.flush();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Can't reply " + response, e);
+		}
+	}
+
+	private static void close(ServerSocket serverSocket) {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Can't close port " + serverSocket.getLocalPort(), e);
+		}
+	}
+
+	private static void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Can't close connection", e);
+		}
+	}
+
+	/**
+	 * Named daemon worker threads.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "payment-server-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
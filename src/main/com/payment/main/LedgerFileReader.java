@@ -0,0 +1,136 @@
+package com.payment.main;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.payment.domain.CentsParser;
+import com.payment.exception.PaymentException;
+
+/**
+ * Reader of a ledger file: the bank transfer on the first line, then one due payment per line.
+ * The file is memory-mapped window by window and the amounts are parsed from the bytes into cents,
+ * without creating a String per line (see {@link CentsParser}). A line split between two windows
+ * goes on with the parser state.
+ *
+ */
+public class LedgerFileReader {
+	// Size of the mapped windows.
+	private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final String inputFile;
+	private final long windowSize;
+	private long bankTransfer;
+	private long[] duePayments = new long[INITIAL_CAPACITY];
+	private int nbDuePayments;
+
+	// Amount of the current line.
+	private final CentsParser parser = new CentsParser();
+	private int lineNumber;
+
+	public LedgerFileReader(String inputFile) {
+		this(inputFile, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param inputFile
+	 * @param windowSize number of bytes mapped at once
+	 */
+	LedgerFileReader(String inputFile, long windowSize) {
+		super();
+		this.inputFile = inputFile;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Return the bank transfer in cents (0 if the file is empty).
+	 * @return bankTransfer
+	 */
+	public long getBankTransfer() {
+		return bankTransfer;
+	}
+
+	/**
+	 * Return the due payments in cents, in the order of the file.
+	 * @return duePayments
+	 */
+	public long[] getDuePayments() {
+		return Arrays.copyOf(duePayments, nbDuePayments);
+	}
+
+	/**
+	 * Read and parse the file.
+	 * @throws PaymentException
+	 */
+	public void read() throws PaymentException {
+		FileInputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(inputFile);
+			FileChannel channel = inputStream.getChannel();
+			long size = channel.size();
+			lineNumber = 1;
+			parser.reset();
+			for (long position = 0; position < size; position += windowSize) {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+				while (window.hasRemaining()) {
+					parse(window.get());
+				}
+			}
+			// The last line may not end with a line feed.
+			if (!parser.isBlank()) {
+				endLine();
+			}
+		} catch (IOException e) {
+			throw new PaymentException("Can't read input file: " + inputFile, e);
+		} finally {
+			if (inputStream != null) {
+				try {
+					inputStream.close();
+				} catch (IOException e) {
+					throw new PaymentException("Can't close input file: " + inputFile, e);
+				}
+			}
+		}
+	}
+
+	private void parse(byte character) throws PaymentException {
+		if (character == '\n') {
+			endLine();
+			lineNumber++;
+			parser.reset();
+		} else {
+			try {
+				parser.accept(character);
+			} catch (NumberFormatException e) {
+				throw parseError(e);
+			}
+		}
+	}
+
+	private void endLine() throws PaymentException {
+		long amount;
+		try {
+			amount = parser.getCents();
+		} catch (NumberFormatException e) {
+			throw parseError(e);
+		}
+
+		if (lineNumber == 1) {
+			// This is the bank transfer.
+			bankTransfer = amount;
+		} else {
+			// This is a due payment.
+			if (nbDuePayments == duePayments.length) {
+				duePayments = Arrays.copyOf(duePayments, 2 * nbDuePayments);
+			}
+			duePayments[nbDuePayments++] = amount;
+		}
+	}
+
+	private PaymentException parseError(NumberFormatException cause) {
+		return new PaymentException("Can't parse correctly amount at line " + lineNumber + " of input file: " + inputFile, cause);
+	}
+}
@@ -0,0 +1,253 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class AdaptivePaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new AdaptivePaymentCalculator();
+	}
+
+	@Test
+	public void testFindPaymentsLargeAmounts() throws PaymentException {
+		// Prepare data: amounts of millions of dollars, above the int range in cents.
+		PaymentAmount bankTransfer = PaymentAmount.parse("75000000.01");
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(PaymentAmount.parse("40000000.00"));
+		duePayments.add(PaymentAmount.parse("25000000.00"));
+		duePayments.add(PaymentAmount.parse("35000000.00"));
+		duePayments.add(PaymentAmount.parse("0.01"));
+		
+		List<PaymentAmount> resultPayments = new ArrayList<PaymentAmount>();
+		resultPayments.add(PaymentAmount.parse("40000000.00"));
+		resultPayments.add(PaymentAmount.parse("35000000.00"));
+		resultPayments.add(PaymentAmount.parse("0.01"));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue("Bank transfer: " + bankTransfer.toString() + " due payments: " + duePayments.toString(), 3 == resultList.size());
+		assertTrue(resultList.containsAll(resultPayments)); 
+	}
+
+	@Test
+	public void testFindPaymentsNegativeDuePayment() throws PaymentException {
+		// Prepare data: a credit note, not supported by the reachable sums.
+		PaymentAmount bankTransfer = new PaymentAmount(20.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(15.00f));
+		duePayments.add(new PaymentAmount(-5.00f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList.size() == 3); 
+	}
+
+	@Test
+	public void testFindClosestPaymentsLargeAmounts() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = PaymentAmount.parse("64999999.50");
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(PaymentAmount.parse("40000000.00"));
+		duePayments.add(PaymentAmount.parse("25000000.00"));
+		duePayments.add(PaymentAmount.parse("35000000.00"));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 100);
+		
+		// Check result.
+		assertTrue(resultList != null && resultList.size() == 2);
+		assertTrue(resultList.contains(PaymentAmount.parse("40000000.00")));
+		assertTrue(resultList.contains(PaymentAmount.parse("25000000.00")));
+	}
+
+	@Test
+	public void testFindClosestPaymentsManyLargeAmounts() throws PaymentException {
+		// Prepare data: 60 amounts from 10000.00 to 20000.00, above the reachable sums and the subset sums,
+		// and a bank transfer 0.37 above the sum of 6 of them.
+		Random random = new Random(60);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long sum = 0;
+		for (int paymentIndex = 0; paymentIndex < 60; paymentIndex++) {
+			long amount = 1000000 + random.nextInt(1000000);
+			duePayments.add(PaymentAmount.valueOf(amount));
+			if (paymentIndex % 10 == 0) {
+				sum += amount;
+			}
+		}
+		PaymentAmount bankTransfer = PaymentAmount.valueOf(sum + 37);
+
+		// Apply algo.
+		PaymentCalculatorEngine engine = ((AdaptivePaymentCalculator) calculator).chooseClosestEngine(bankTransfer, duePayments, 100);
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 100);
+
+		// Check result.
+		assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.SEARCH);
+		assertTrue(resultList != null);
+		long resultSum = 0;
+		for (PaymentAmount payment : resultList) {
+			resultSum += payment.getAmount();
+		}
+		assertTrue(Math.abs(resultSum - bankTransfer.getAmount()) <= 37);
+	}
+
+	@Test
+	public void testChooseEngineSmallBankTransfer() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(1000.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int index = 1; index <= 100; index++) {
+			duePayments.add(PaymentAmount.valueOf(index * 997 + 13));
+		}
+		
+		// Apply algo.
+		PaymentCalculatorEngine engine = ((AdaptivePaymentCalculator) calculator).chooseEngine(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.DYNAMIC_PROGRAMMING);
+	}
+
+	@Test
+	public void testChooseEngineFewPayments() throws PaymentException {
+		// Prepare data: above the reachable sums.
+		PaymentAmount bankTransfer = PaymentAmount.parse("5000000.00");
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int index = 1; index <= 20; index++) {
+			duePayments.add(PaymentAmount.valueOf(index * 100003L));
+		}
+		
+		// Apply algo.
+		PaymentCalculatorEngine engine = ((AdaptivePaymentCalculator) calculator).chooseEngine(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.MEET_IN_THE_MIDDLE);
+	}
+
+	@Test
+	public void testFindPaymentsSearchFirst() throws PaymentException {
+		for (int nbPayments = 40; nbPayments <= 44; nbPayments++) {
+			// Prepare data: amounts up to $5,000, the bank transfer is the sum of every fourth one ($28,000 to $56,000).
+			Random random = new Random(nbPayments);
+			List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+			long bankTransferAmount = 0;
+			for (int paymentIndex = 0; paymentIndex < nbPayments; paymentIndex++) {
+				long amount = 1 + random.nextInt(500000);
+				duePayments.add(PaymentAmount.valueOf(amount));
+				if (paymentIndex % 4 == 0) {
+					bankTransferAmount += amount;
+				}
+			}
+			PaymentAmount bankTransfer = PaymentAmount.valueOf(bankTransferAmount);
+			PaymentCalculatorStats stats = new PaymentCalculatorStats();
+			AdaptivePaymentCalculator adaptiveCalculator = new AdaptivePaymentCalculator();
+			adaptiveCalculator.setMetrics(stats);
+
+			// Apply algo.
+			PaymentCalculatorEngine engine = adaptiveCalculator.chooseEngine(bankTransfer, duePayments);
+			List<PaymentAmount> resultList = adaptiveCalculator.findPayments(bankTransfer, duePayments);
+
+			// Check result: the subset sums win the estimate, but the search finds the solution first.
+			assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.MEET_IN_THE_MIDDLE);
+			assertTrue(resultList != null);
+			long sum = 0;
+			for (PaymentAmount payment : resultList) {
+				sum += payment.getAmount();
+			}
+			assertTrue(sum == bankTransferAmount);
+			assertTrue(stats.getSearchCount() == 1 && stats.getFoundCount() == 1 && stats.getTotalNodes() > 0);
+		}
+	}
+
+	@Test
+	public void testFindPaymentsBudget() throws PaymentException {
+		// Prepare data: 26 large random amounts and half their total, a long search.
+		Random random = new Random(7);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long total = 0;
+		for (int paymentIndex = 0; paymentIndex < 26; paymentIndex++) {
+			long amount = (1 << 24) + random.nextInt(1 << 24);
+			duePayments.add(PaymentAmount.valueOf(amount));
+			total += amount;
+		}
+		PaymentAmount bankTransfer = PaymentAmount.valueOf(total / 2);
+		AdaptivePaymentCalculator adaptiveCalculator = (AdaptivePaymentCalculator) calculator;
+
+		// Apply algo: the budget runs out during the first search, else the subset sums find a solution.
+		PaymentSearchResult limitedResult = adaptiveCalculator.findPayments(bankTransfer, duePayments, new SearchBudget(0, 10, null));
+		PaymentSearchResult result = adaptiveCalculator.findPayments(bankTransfer, duePayments, SearchBudget.UNLIMITED);
+
+		// Check result.
+		assertTrue(limitedResult.getOutcome() == PaymentSearchResult.Outcome.GAVE_UP && limitedResult.getExploredNodes() == 11);
+		assertTrue(result.getOutcome() == PaymentSearchResult.Outcome.FOUND && result.getPayments().size() == 13);
+	}
+
+	@Test
+	public void testChooseEngineDuplicates() throws PaymentException {
+		// Prepare data: a few distinct amounts, many times each.
+		PaymentAmount bankTransfer = PaymentAmount.parse("5000000.00");
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int index = 0; index < 1000; index++) {
+			duePayments.add(PaymentAmount.valueOf(100003L * (1 + index % 10)));
+		}
+		
+		// Apply algo.
+		PaymentCalculatorEngine engine = ((AdaptivePaymentCalculator) calculator).chooseEngine(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.MULTISET);
+	}
+
+	@Test
+	public void testChooseEngineNegativeDuePayment() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(20.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(15.00f));
+		duePayments.add(new PaymentAmount(-5.00f));
+		
+		// Apply algo.
+		PaymentCalculatorEngine engine = ((AdaptivePaymentCalculator) calculator).chooseEngine(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue("Engine: " + engine, engine == PaymentCalculatorEngine.SEARCH);
+	}
+
+	@Test
+	public void testFindPaymentsEngineOverride() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(25.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(15.00f));
+		duePayments.add(new PaymentAmount(-5.00f));
+		
+		// Apply algo: the reachable sums, forced, refuse the negative amount.
+		AdaptivePaymentCalculator adaptiveCalculator = (AdaptivePaymentCalculator) calculator;
+		List<PaymentAmount> resultList = adaptiveCalculator.findPayments(bankTransfer, duePayments, PaymentCalculatorEngine.SEARCH);
+		boolean refused = false;
+		try {
+			adaptiveCalculator.findPayments(bankTransfer, duePayments, PaymentCalculatorEngine.DYNAMIC_PROGRAMMING);
+		} catch (PaymentException e) {
+			refused = true;
+		}
+		
+		// Check result.
+		assertTrue(resultList != null && resultList.size() == 2);
+		assertTrue(refused);
+	}
+}
@@ -0,0 +1,73 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class BatchPaymentCalculatorTest {
+	
+	BatchPaymentCalculator calculator = null;
+	List<PaymentAmount> duePayments = null;
+
+	@Before
+	public void setUp() throws Exception {
+		calculator = new BatchPaymentCalculator();
+		duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+	}
+
+	@Test
+	public void testFindPaymentsShared() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(74.06f));
+		bankTransfers.add(new PaymentAmount(56.97f));
+		bankTransfers.add(new PaymentAmount(1.00f));
+		
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = calculator.findPayments(bankTransfers, duePayments, false);
+		
+		// Check result.
+		assertTrue(resultLists.size() == 3);
+		assertTrue(resultLists.get(0).size() == 3);
+		assertTrue(resultLists.get(1).size() == 2);
+		assertTrue(resultLists.get(1).contains(new PaymentAmount(22.75f)));
+		assertTrue(resultLists.get(2) == null);
+	}
+
+	@Test
+	public void testFindPaymentsExclusive() throws PaymentException {
+		// Prepare data: 22.75 can't be used twice.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(22.75f));
+		bankTransfers.add(new PaymentAmount(56.97f));
+		bankTransfers.add(new PaymentAmount(61.43f));
+		
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = calculator.findPayments(bankTransfers, duePayments, true);
+		
+		// Check result.
+		assertTrue(resultLists.get(0).size() == 1);
+		assertTrue(resultLists.get(1) == null);
+		assertTrue(resultLists.get(2).size() == 2);
+		assertTrue(resultLists.get(2).contains(new PaymentAmount(27.21f)));
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindPaymentsNoBankTransfers() throws PaymentException {
+		// Apply algo.
+		calculator.findPayments(null, duePayments, false);
+	}
+}
@@ -0,0 +1,143 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class CachingPaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	// Number of calls reaching the decorated calculator.
+	int nbCalls = 0;
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new CachingPaymentCalculator(new CountingPaymentCalculator());
+	}
+
+	@Test
+	public void testFindPaymentsHit() throws PaymentException {
+		// Prepare data: the same ledger in another order, with other instances.
+		CachingPaymentCalculator cachingCalculator = (CachingPaymentCalculator) calculator;
+		List<PaymentAmount> duePayments = createDuePayments();
+		List<PaymentAmount> otherDuePayments = createDuePayments();
+		Collections.reverse(otherDuePayments);
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(new PaymentAmount(74.06f), duePayments);
+		List<PaymentAmount> otherResultList = calculator.findPayments(new PaymentAmount(74.06f), otherDuePayments);
+		
+		// Check result: the second result is made of the second list's payments.
+		assertTrue(nbCalls == 1);
+		assertTrue(cachingCalculator.getHitCount() == 1 && cachingCalculator.getMissCount() == 1);
+		assertTrue(otherResultList.size() == resultList.size() && otherResultList.containsAll(resultList));
+		for (PaymentAmount payment : otherResultList) {
+			assertTrue(containsInstance(otherDuePayments, payment));
+		}
+	}
+
+	@Test
+	public void testFindPaymentsNoSolutionHit() throws PaymentException {
+		// Prepare data.
+		CachingPaymentCalculator cachingCalculator = (CachingPaymentCalculator) calculator;
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(new PaymentAmount(1.00f), createDuePayments());
+		List<PaymentAmount> otherResultList = calculator.findPayments(new PaymentAmount(1.00f), createDuePayments());
+		
+		// Check result.
+		assertTrue(resultList == null && otherResultList == null);
+		assertTrue(nbCalls == 1);
+		assertTrue(cachingCalculator.getHitCount() == 1);
+	}
+
+	@Test
+	public void testFindPaymentsOtherKeys() throws PaymentException {
+		// Apply algo: other bank transfer, other ledger, closest mode.
+		calculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		calculator.findPayments(new PaymentAmount(56.30f), createDuePayments());
+		List<PaymentAmount> duePayments = createDuePayments();
+		duePayments.add(new PaymentAmount(1.00f));
+		calculator.findPayments(new PaymentAmount(74.06f), duePayments);
+		calculator.findClosestPayments(new PaymentAmount(74.06f), createDuePayments(), 10);
+		
+		// Check result.
+		assertTrue(nbCalls == 4);
+		assertTrue(((CachingPaymentCalculator) calculator).getHitCount() == 0);
+	}
+
+	@Test
+	public void testFindPaymentsEviction() throws PaymentException {
+		// Prepare data: 2 entries at most, the first one used again before the third one.
+		CachingPaymentCalculator cachingCalculator = new CachingPaymentCalculator(new CountingPaymentCalculator(), 2, CachingPaymentCalculator.DEFAULT_TIME_TO_LIVE);
+		
+		// Apply algo.
+		cachingCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		cachingCalculator.findPayments(new PaymentAmount(56.30f), createDuePayments());
+		cachingCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		cachingCalculator.findPayments(new PaymentAmount(22.75f), createDuePayments());
+		cachingCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		cachingCalculator.findPayments(new PaymentAmount(56.30f), createDuePayments());
+		
+		// Check result: only the least recently used one was evicted.
+		assertTrue(cachingCalculator.size() == 2);
+		assertTrue(nbCalls == 4);
+		assertTrue(cachingCalculator.getHitCount() == 2 && cachingCalculator.getMissCount() == 4);
+	}
+
+	@Test
+	public void testFindPaymentsExpired() throws PaymentException, InterruptedException {
+		// Prepare data.
+		CachingPaymentCalculator cachingCalculator = new CachingPaymentCalculator(new CountingPaymentCalculator(), 10, 1);
+		
+		// Apply algo.
+		cachingCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		Thread.sleep(20);
+		cachingCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		
+		// Check result.
+		assertTrue(nbCalls == 2);
+		assertTrue(cachingCalculator.getHitCount() == 0);
+	}
+
+	private static List<PaymentAmount> createDuePayments() {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+		return duePayments;
+	}
+
+	private static boolean containsInstance(List<PaymentAmount> payments, PaymentAmount payment) {
+		for (PaymentAmount otherPayment : payments) {
+			if (otherPayment == payment) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private class CountingPaymentCalculator extends FindPaymentCalculator {
+
+		@Override
+		public List<PaymentAmount> findPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments) throws PaymentException {
+			nbCalls++;
+			return super.findPayments(bankTransfer, duePayments);
+		}
+
+		@Override
+		public List<PaymentAmount> findClosestPayments(PaymentAmount bankTransfer, List<PaymentAmount> duePayments, int toleranceCents) throws PaymentException {
+			nbCalls++;
+			return super.findClosestPayments(bankTransfer, duePayments, toleranceCents);
+		}
+	}
+}
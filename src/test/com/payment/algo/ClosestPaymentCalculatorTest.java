@@ -0,0 +1,122 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class ClosestPaymentCalculatorTest {
+
+	ClosestPaymentCalculator calculator = null;
+
+	@Before
+	public void setUp() throws Exception {
+		calculator = new ClosestPaymentCalculator();
+	}
+
+	@Test
+	public void testFindClosestPaymentsSearch() throws PaymentException {
+		// Prepare data: 50 due payments above the max target of the reachable sums and the max number of payments
+		// of the subset sums, and a bank transfer 0.37 above the sum of 5 of them.
+		Random random = new Random(5);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long sum = 0;
+		for (int paymentIndex = 0; paymentIndex < 50; paymentIndex++) {
+			long amount = DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET + random.nextInt(1000000);
+			duePayments.add(PaymentAmount.valueOf(amount));
+			if (paymentIndex % 10 == 0) {
+				sum += amount;
+			}
+		}
+		PaymentAmount bankTransfer = PaymentAmount.valueOf(sum + 37);
+
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 100);
+
+		// Check result.
+		assertTrue(resultList != null);
+		assertTrue(Math.abs(sum(resultList) - bankTransfer.getAmount()) <= 37);
+	}
+
+	@Test
+	public void testFindClosestPaymentsSearchBelowAtEqualDistance() throws PaymentException {
+		// Prepare data: 20000.00 and 40000.00 are both 10000.00 away.
+		PaymentAmount bankTransfer = new PaymentAmount(30000.00f);
+		List<PaymentAmount> duePayments = createEqualDuePayments();
+
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 1000000);
+
+		// Check result.
+		assertTrue(resultList != null && 1 == resultList.size());
+		assertTrue(resultList.contains(new PaymentAmount(20000.00f)));
+	}
+
+	@Test
+	public void testFindClosestPaymentsSearchNoResult() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(30000.00f);
+		List<PaymentAmount> duePayments = createEqualDuePayments();
+
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 999999);
+
+		// Check result.
+		assertTrue(resultList == null);
+	}
+
+	@Test
+	public void testFindClosestPaymentsBudget() throws PaymentException {
+		// Prepare data: 60 large random amounts and half their total, a long search.
+		Random random = new Random(7);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long total = 0;
+		for (int paymentIndex = 0; paymentIndex < 60; paymentIndex++) {
+			long amount = (1 << 24) + random.nextInt(1 << 24);
+			duePayments.add(PaymentAmount.valueOf(amount));
+			total += amount;
+		}
+		PaymentAmount bankTransfer = PaymentAmount.valueOf(total / 2 + 1);
+
+		// Apply algo.
+		PaymentSearchResult searchResult = calculator.findClosestPayments(bankTransfer, duePayments, 100, new SearchBudget(0, 10, null));
+
+		// Check result.
+		assertTrue(searchResult.toString(), searchResult.getOutcome() == PaymentSearchResult.Outcome.GAVE_UP);
+		assertTrue(searchResult.getPayments() == null && searchResult.getExploredNodes() == 11);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindClosestPaymentsNegativeTolerance() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(30000.00f);
+		List<PaymentAmount> duePayments = createEqualDuePayments();
+
+		// Apply algo.
+		calculator.findClosestPayments(bankTransfer, duePayments, -1);
+	}
+
+	// 50 due payments of 20000.00.
+	private static List<PaymentAmount> createEqualDuePayments() {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < 50; paymentIndex++) {
+			duePayments.add(new PaymentAmount(20000.00f));
+		}
+		return duePayments;
+	}
+
+	private static long sum(List<PaymentAmount> payments) {
+		long sum = 0;
+		for (PaymentAmount payment : payments) {
+			sum += payment.getAmount();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,70 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class DynamicProgrammingPaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new DynamicProgrammingPaymentCalculator();
+	}
+
+	@Test
+	public void testFindPaymentsManyDuePayments() throws PaymentException {
+		// Prepare data: 250 due payments, the bank transfer is the sum of every third one.
+		Random random = new Random(42);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		int bankTransferAmount = 0;
+		for (int paymentIndex = 0; paymentIndex < 250; paymentIndex++) {
+			int amount = 1 + random.nextInt(5000);
+			duePayments.add(new PaymentAmount(amount));
+			if (paymentIndex % 3 == 0 && bankTransferAmount + amount <= DynamicProgrammingPaymentCalculator.DEFAULT_MAX_TARGET) {
+				bankTransferAmount += amount;
+			}
+		}
+		PaymentAmount bankTransfer = new PaymentAmount(bankTransferAmount);
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList != null);
+		int sum = 0;
+		for (PaymentAmount payment : resultList) {
+			sum += payment.getAmount();
+		}
+		assertTrue(sum == bankTransferAmount);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindPaymentsAboveMaxTarget() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(10000.01f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10000.01f));
+		
+		// Apply algo.
+		calculator.findPayments(bankTransfer, duePayments);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindPaymentsNegativeBankTransferNegativeDuePayment() throws PaymentException {
+		// Prepare data: the negative due payment is rejected, even with no possible solution.
+		PaymentAmount bankTransfer = new PaymentAmount(-5.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(-5.00f));
+		
+		// Apply algo.
+		calculator.findPayments(bankTransfer, duePayments);
+	}
+}
@@ -0,0 +1,152 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.algo.PaymentSearchResult.Outcome;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class FindPaymentCalculatorBudgetTest {
+	
+	IBudgetedFindPaymentCalculator calculator = null;
+
+	@Before
+	public void setUp() throws Exception {
+		calculator = new FindPaymentCalculator();
+	}
+
+	// 26 large random amounts and half their total: most likely no solution, and a long search.
+	private static List<PaymentAmount> createHardDuePayments() {
+		Random random = new Random(7);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < 26; paymentIndex++) {
+			duePayments.add(new PaymentAmount((1 << 24) + random.nextInt(1 << 24)));
+		}
+		return duePayments;
+	}
+
+	private static PaymentAmount half(List<PaymentAmount> duePayments) {
+		long total = 0;
+		for (PaymentAmount duePayment : duePayments) {
+			total += duePayment.getAmount();
+		}
+		return new PaymentAmount((int) (total / 2));
+	}
+
+	@Test
+	public void testFindPaymentsFound() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(5.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(2.00f));
+		duePayments.add(new PaymentAmount(3.00f));
+		duePayments.add(new PaymentAmount(6.00f));
+		
+		// Apply algo.
+		PaymentSearchResult result = calculator.findPayments(bankTransfer, duePayments, new SearchBudget(1000, 1000, null));
+		
+		// Check result.
+		assertTrue(result.getOutcome() == Outcome.FOUND);
+		assertTrue(result.getPayments().size() == 2);
+		assertTrue(result.getClosestSum().equals(bankTransfer));
+	}
+
+	@Test
+	public void testFindPaymentsProvenNoSolution() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(5.50f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(2.00f));
+		duePayments.add(new PaymentAmount(3.00f));
+		duePayments.add(new PaymentAmount(6.01f));
+		
+		// Apply algo.
+		PaymentSearchResult result = calculator.findPayments(bankTransfer, duePayments, SearchBudget.UNLIMITED);
+		
+		// Check result.
+		assertTrue(result.getOutcome() == Outcome.PROVEN_NO_SOLUTION);
+		assertTrue(result.getPayments() == null);
+		assertTrue(result.getClosestSum().equals(new PaymentAmount(5.00f)));
+	}
+
+	@Test
+	public void testFindPaymentsNodeBudget() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> duePayments = createHardDuePayments();
+		
+		// Apply algo.
+		PaymentSearchResult result = calculator.findPayments(half(duePayments), duePayments, new SearchBudget(0, 10000, null));
+		
+		// Check result.
+		assertTrue(result.getOutcome() == Outcome.GAVE_UP);
+		assertTrue(result.getExploredNodes() == 10001);
+		assertTrue(result.getClosestSum().getAmount() <= half(duePayments).getAmount());
+	}
+
+	@Test
+	public void testFindPaymentsTimeBudget() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> duePayments = createHardDuePayments();
+		
+		// Apply algo.
+		long startTime = System.currentTimeMillis();
+		PaymentSearchResult result = calculator.findPayments(half(duePayments), duePayments, new SearchBudget(100, 0, null));
+		
+		// Check result.
+		assertTrue(result.getOutcome() == Outcome.GAVE_UP);
+		assertTrue(System.currentTimeMillis() - startTime < 5000);
+	}
+
+	@Test
+	public void testFindPaymentsCancelled() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> duePayments = createHardDuePayments();
+		CancellationToken cancellationToken = new CancellationToken();
+		cancellationToken.cancel();
+		
+		// Apply algo.
+		PaymentSearchResult result = calculator.findPayments(half(duePayments), duePayments, new SearchBudget(0, 0, cancellationToken));
+		
+		// Check result.
+		assertTrue(result.getOutcome() == Outcome.GAVE_UP);
+	}
+
+	@Test
+	public void testFindPaymentsSmallStack() throws Exception {
+		// Prepare data: 10001 payments to choose, in a thread with a small stack.
+		final List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < 12000; paymentIndex++) {
+			duePayments.add(PaymentAmount.valueOf(100));
+		}
+		duePayments.add(PaymentAmount.valueOf(50));
+		final PaymentSearchResult[] result = new PaymentSearchResult[1];
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread(null, new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					result[0] = calculator.findPayments(PaymentAmount.valueOf(100 * 10000 + 50), duePayments, SearchBudget.UNLIMITED);
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		}, "small-stack", 128 * 1024);
+		
+		// Apply algo.
+		thread.start();
+		thread.join();
+		
+		// Check result.
+		assertTrue(String.valueOf(error[0]), error[0] == null);
+		assertTrue(result[0].getOutcome() == Outcome.FOUND);
+		assertTrue(result[0].getPayments().size() == 10001);
+	}
+}
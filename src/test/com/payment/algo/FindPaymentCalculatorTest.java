@@ -28,7 +28,15 @@ public class FindPaymentCalculatorTest {
 
 	@Before
 	public void setUp() throws Exception {
-		calculator = new FindPaymentCalculator();
+		calculator = createCalculator();
+	}
+
+	/**
+	 * Calculator under test (overridden by the tests of the other engines).
+	 * @return calculator
+	 */
+	protected IFindPaymentCalculator createCalculator() {
+		return new FindPaymentCalculator();
 	}
 
 	@After
@@ -262,4 +270,140 @@ public class FindPaymentCalculatorTest {
 		// Check result.
 		assertTrue(resultList == null); 
 	}
+
+	@Test
+	public void testFindPaymentsSmallMemo() throws PaymentException {
+		// Prepare data: no solution (odd bank transfer, even due payments), with a memo of 16 entries.
+		IFindPaymentCalculator smallMemoCalculator = new FindPaymentCalculator(16);
+		PaymentAmount bankTransfer = new PaymentAmount(101);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 1; paymentIndex <= 14; paymentIndex++) {
+			duePayments.add(new PaymentAmount(2 * paymentIndex));
+		}
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = smallMemoCalculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList == null); 
+	}
+
+	@Test
+	public void testFindPaymentsDuePaymentsUnchanged() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(74.06f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(22.75f));
+		List<PaymentAmount> initialDuePayments = new ArrayList<PaymentAmount>(duePayments);
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result: the due payments keep their order.
+		assertTrue(resultList.size() == 3);
+		assertTrue(duePayments.equals(initialDuePayments));
+	}
+
+	@Test
+	public void testFindClosestPaymentsExact() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(30.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		List<PaymentAmount> resultPayments = new ArrayList<PaymentAmount>();
+		resultPayments.add(new PaymentAmount(10.00f));
+		resultPayments.add(new PaymentAmount(20.00f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 0);
+		
+		// Check result.
+		assertTrue("Bank transfer: " + bankTransfer.toString() + " due payments: " + duePayments.toString(), 2 == resultList.size());
+		assertTrue(resultList.containsAll(resultPayments)); 
+	}
+
+	@Test
+	public void testFindClosestPaymentsBelow() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(31.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		List<PaymentAmount> resultPayments = new ArrayList<PaymentAmount>();
+		resultPayments.add(new PaymentAmount(10.00f));
+		resultPayments.add(new PaymentAmount(20.00f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 200);
+		
+		// Check result.
+		assertTrue("Bank transfer: " + bankTransfer.toString() + " due payments: " + duePayments.toString(), 2 == resultList.size());
+		assertTrue(resultList.containsAll(resultPayments)); 
+	}
+
+	@Test
+	public void testFindClosestPaymentsAbove() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(54.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		List<PaymentAmount> resultPayments = new ArrayList<PaymentAmount>();
+		resultPayments.add(new PaymentAmount(10.00f));
+		resultPayments.add(new PaymentAmount(45.00f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 200);
+		
+		// Check result.
+		assertTrue("Bank transfer: " + bankTransfer.toString() + " due payments: " + duePayments.toString(), 2 == resultList.size());
+		assertTrue(resultList.containsAll(resultPayments)); 
+	}
+
+	@Test
+	public void testFindClosestPaymentsBelowAtEqualDistance() throws PaymentException {
+		// Prepare data: 45.00 and 55.00 are both 5.00 away.
+		PaymentAmount bankTransfer = new PaymentAmount(50.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 500);
+		
+		// Check result.
+		assertTrue("Bank transfer: " + bankTransfer.toString() + " due payments: " + duePayments.toString(), 1 == resultList.size());
+		assertTrue(resultList.contains(new PaymentAmount(45.00f))); 
+	}
+
+	@Test
+	public void testFindClosestPaymentsNoResult() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(31.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findClosestPayments(bankTransfer, duePayments, 99);
+		
+		// Check result.
+		assertTrue(resultList == null); 
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindClosestPaymentsNegativeTolerance() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(31.00f);
+		List<PaymentAmount> duePayments = createClosestDuePayments();
+		
+		// Apply algo.
+		calculator.findClosestPayments(bankTransfer, duePayments, -1);
+	}
+
+	// Reachable sums: 10, 20, 30, 45, 55, 65 and 75 dollars.
+	private static List<PaymentAmount> createClosestDuePayments() {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(45.00f));
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(20.00f));
+		return duePayments;
+	}
 }
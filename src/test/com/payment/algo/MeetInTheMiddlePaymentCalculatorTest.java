@@ -0,0 +1,60 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class MeetInTheMiddlePaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new MeetInTheMiddlePaymentCalculator();
+	}
+
+	@Test
+	public void testFindPaymentsFortyLargeDuePayments() throws PaymentException {
+		// Prepare data: 40 due payments of up to 20 million cents, the bank transfer is the sum of every other one.
+		Random random = new Random(7);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		int bankTransferAmount = 0;
+		for (int paymentIndex = 0; paymentIndex < 40; paymentIndex++) {
+			int amount = 1 + random.nextInt(20000000);
+			duePayments.add(new PaymentAmount(amount));
+			if (paymentIndex % 2 == 0) {
+				bankTransferAmount += amount;
+			}
+		}
+		PaymentAmount bankTransfer = new PaymentAmount(bankTransferAmount);
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList != null);
+		long sum = 0;
+		for (PaymentAmount payment : resultList) {
+			sum += payment.getAmount();
+		}
+		assertTrue(sum == bankTransferAmount);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testFindPaymentsTooManyDuePayments() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(1000.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < MeetInTheMiddlePaymentCalculator.DEFAULT_MAX_PAYMENTS + 1; paymentIndex++) {
+			duePayments.add(new PaymentAmount(1.00f));
+		}
+		
+		// Apply algo.
+		calculator.findPayments(bankTransfer, duePayments);
+	}
+}
@@ -0,0 +1,165 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class MultiTransferAllocatorTest {
+
+	MultiTransferAllocator allocator = null;
+	List<PaymentAmount> duePayments = null;
+
+	@Before
+	public void setUp() throws Exception {
+		allocator = new MultiTransferAllocator();
+		duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(4.00f));
+		duePayments.add(new PaymentAmount(1.00f));
+		duePayments.add(new PaymentAmount(3.00f));
+		duePayments.add(new PaymentAmount(2.00f));
+	}
+
+	@Test
+	public void testAllocate() throws PaymentException {
+		// Prepare data: 4.00 + 1.00 for the first bank transfer would leave nothing for the second one.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(5.00f));
+		bankTransfers.add(new PaymentAmount(4.00f));
+
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = allocator.allocate(bankTransfers, duePayments, false);
+
+		// Check result.
+		assertTrue(resultLists != null && resultLists.size() == 2);
+		assertTrue(isAllocation(bankTransfers, resultLists));
+		assertTrue(resultLists.get(1).size() == 1 && resultLists.get(1).contains(new PaymentAmount(4.00f)));
+	}
+
+	@Test
+	public void testAllocateRequireAll() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(5.00f));
+		bankTransfers.add(new PaymentAmount(4.00f));
+
+		// Apply algo: 1.00 is left out, unless all the due payments are required.
+		List<List<PaymentAmount>> resultLists = allocator.allocate(bankTransfers, duePayments, true);
+		bankTransfers.add(new PaymentAmount(1.00f));
+		List<List<PaymentAmount>> allResultLists = allocator.allocate(bankTransfers, duePayments, true);
+
+		// Check result.
+		assertTrue(resultLists == null);
+		assertTrue(allResultLists != null && isAllocation(bankTransfers, allResultLists));
+	}
+
+	@Test
+	public void testAllocateNoSolution() throws PaymentException {
+		// Prepare data: 6.00 is reachable, but not twice.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(6.00f));
+		bankTransfers.add(new PaymentAmount(6.00f));
+
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = allocator.allocate(bankTransfers, duePayments, false);
+
+		// Check result.
+		assertTrue(resultLists == null);
+	}
+
+	@Test
+	public void testAllocateRequireAllNoBankTransfer() throws PaymentException {
+		// Prepare data: zero amounts only, but no bank transfer to settle them.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		List<PaymentAmount> zeroDuePayments = new ArrayList<PaymentAmount>();
+		zeroDuePayments.add(new PaymentAmount(0.00f));
+		zeroDuePayments.add(new PaymentAmount(0.00f));
+
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = allocator.allocate(bankTransfers, zeroDuePayments, true);
+		List<List<PaymentAmount>> partialResultLists = allocator.allocate(bankTransfers, zeroDuePayments, false);
+		List<List<PaymentAmount>> emptyResultLists = allocator.allocate(bankTransfers, new ArrayList<PaymentAmount>(), true);
+
+		// Check result.
+		assertTrue(resultLists == null);
+		assertTrue(partialResultLists != null && partialResultLists.isEmpty());
+		assertTrue(emptyResultLists != null && emptyResultLists.isEmpty());
+	}
+
+	@Test
+	public void testAllocateManyTransfers() throws PaymentException {
+		// Prepare data: 40 bank transfers, each the sum of 10 of 400 due payments.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		List<PaymentAmount> manyDuePayments = new ArrayList<PaymentAmount>();
+		createTransfers(40, bankTransfers, manyDuePayments);
+
+		// Apply algo.
+		List<List<PaymentAmount>> resultLists = allocator.allocate(bankTransfers, manyDuePayments, true);
+
+		// Check result.
+		assertTrue(resultLists != null && isAllocation(bankTransfers, resultLists));
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testAllocateNegativeDuePayment() throws PaymentException {
+		// Prepare data.
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		bankTransfers.add(new PaymentAmount(5.00f));
+		duePayments.add(new PaymentAmount(-1.00f));
+
+		// Apply algo.
+		allocator.allocate(bankTransfers, duePayments, false);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testAllocateBudget() throws PaymentException {
+		// Prepare data: an allocation takes at least 30 nodes (10 payments for each bank transfer but the last one).
+		List<PaymentAmount> bankTransfers = new ArrayList<PaymentAmount>();
+		List<PaymentAmount> manyDuePayments = new ArrayList<PaymentAmount>();
+		createTransfers(4, bankTransfers, manyDuePayments);
+
+		// Apply algo.
+		allocator.allocate(bankTransfers, manyDuePayments, true, new SearchBudget(0, 10, null));
+	}
+
+	// Bank transfers, each the sum of 10 due payments (distinct objects, above the cached amounts).
+	private static void createTransfers(int nbTransfers, List<PaymentAmount> bankTransfers, List<PaymentAmount> duePayments) {
+		Random random = new Random(11);
+		for (int transferIndex = 0; transferIndex < nbTransfers; transferIndex++) {
+			long sum = 0;
+			for (int paymentIndex = 0; paymentIndex < 10; paymentIndex++) {
+				long amount = 10000 + random.nextInt(100000);
+				duePayments.add(PaymentAmount.valueOf(amount));
+				sum += amount;
+			}
+			bankTransfers.add(PaymentAmount.valueOf(sum));
+		}
+	}
+
+	// The lists sum to their bank transfer, and no due payment is in two lists.
+	private static boolean isAllocation(List<PaymentAmount> bankTransfers, List<List<PaymentAmount>> resultLists) {
+		Map<PaymentAmount, Boolean> allocated = new IdentityHashMap<PaymentAmount, Boolean>();
+		for (int transferIndex = 0; transferIndex < bankTransfers.size(); transferIndex++) {
+			long sum = 0;
+			for (PaymentAmount payment : resultLists.get(transferIndex)) {
+				sum += payment.getAmount();
+				if (allocated.put(payment, Boolean.TRUE) != null) {
+					return false;
+				}
+			}
+			if (sum != bankTransfers.get(transferIndex).getAmount()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,200 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class MultisetPaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new MultisetPaymentCalculator();
+	}
+
+	@Test
+	public void testFindPaymentsDuplicateDuePayments() throws PaymentException {
+		// Prepare data: 3 subscription prices, 100 payments of each.
+		PaymentAmount bankTransfer = new PaymentAmount(1234.50f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < 100; paymentIndex++) {
+			duePayments.add(new PaymentAmount(9.99f));
+			duePayments.add(new PaymentAmount(19.99f));
+			duePayments.add(new PaymentAmount(49.50f));
+		}
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList != null);
+		int sum = 0;
+		for (PaymentAmount payment : resultList) {
+			sum += payment.getAmount();
+		}
+		assertTrue(sum == bankTransfer.getAmount());
+	}
+
+	@Test
+	public void testFindPaymentsManyDistinctAmounts() throws PaymentException {
+		// Prepare data: 20000 distinct amounts, 2 payments of each, and their total but 0.01 (one group per level of the search).
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long total = 0;
+		for (int amount = 1; amount <= 20000; amount++) {
+			duePayments.add(PaymentAmount.valueOf(amount));
+			duePayments.add(PaymentAmount.valueOf(amount));
+			total += 2 * amount;
+		}
+		PaymentAmount bankTransfer = PaymentAmount.valueOf(total - 1);
+
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+
+		// Check result.
+		assertTrue(resultList != null && resultList.size() == 2 * 20000 - 1);
+	}
+
+	@Test
+	public void testFindPaymentsDuplicateDuePaymentsNoResult() throws PaymentException {
+		// Prepare data: only 3 payments of 10.00 for a 40.00 bank transfer.
+		PaymentAmount bankTransfer = new PaymentAmount(40.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int paymentIndex = 0; paymentIndex < 3; paymentIndex++) {
+			duePayments.add(new PaymentAmount(10.00f));
+		}
+		duePayments.add(new PaymentAmount(25.00f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList == null);
+	}
+
+	@Test
+	public void testFindAllPaymentsDistinctAmounts() throws PaymentException {
+		// Prepare data: 10.00 + 20.00 and 30.00, with two payments of 10.00 and two of 30.00.
+		PaymentAmount bankTransfer = new PaymentAmount(30.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(30.00f));
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(20.00f));
+		duePayments.add(new PaymentAmount(30.00f));
+		
+		// Apply algo.
+		Iterator<List<PaymentAmount>> solutions = new MultisetPaymentCalculator().findAllPayments(bankTransfer, duePayments, 0, SolutionOrder.ANY);
+		List<List<PaymentAmount>> resultLists = new ArrayList<List<PaymentAmount>>();
+		while (solutions.hasNext()) {
+			resultLists.add(solutions.next());
+		}
+		
+		// Check result: the oldest payments of each amount are used.
+		assertTrue("Solutions: " + resultLists, 2 == resultLists.size());
+		for (List<PaymentAmount> resultList : resultLists) {
+			if (resultList.size() == 1) {
+				assertTrue(resultList.get(0) == duePayments.get(1));
+			} else {
+				assertTrue(resultList.size() == 2);
+				assertTrue(resultList.get(0) == duePayments.get(0));
+				assertTrue(resultList.get(1) == duePayments.get(3));
+			}
+		}
+	}
+
+	@Test
+	public void testFindAllPaymentsFewestPayments() throws PaymentException {
+		// Prepare data: 1.00 + 2.00 + 3.00 + 4.00, 2.00 + 3.00 + 5.00, 1.00 + 4.00 + 5.00 and 4.00 + 6.00.
+		PaymentAmount bankTransfer = new PaymentAmount(10.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int amount = 1; amount <= 6; amount++) {
+			duePayments.add(new PaymentAmount(100 * amount));
+		}
+		
+		// Apply algo.
+		Iterator<List<PaymentAmount>> solutions = new MultisetPaymentCalculator().findAllPayments(bankTransfer, duePayments, 0, SolutionOrder.FEWEST_PAYMENTS);
+		
+		// Check result.
+		int previousSize = 0;
+		int nbSolutions = 0;
+		while (solutions.hasNext()) {
+			List<PaymentAmount> resultList = solutions.next();
+			assertTrue("Solution: " + resultList, resultList.size() >= previousSize);
+			previousSize = resultList.size();
+			nbSolutions++;
+		}
+		assertTrue(nbSolutions == 5);
+		assertTrue(previousSize == 4);
+	}
+
+	@Test
+	public void testFindAllPaymentsOldestFirst() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(10.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(4.00f));
+		duePayments.add(new PaymentAmount(10.00f));
+		duePayments.add(new PaymentAmount(6.00f));
+		duePayments.add(new PaymentAmount(3.00f));
+		duePayments.add(new PaymentAmount(3.00f));
+		
+		// Apply algo.
+		Iterator<List<PaymentAmount>> solutions = new MultisetPaymentCalculator().findAllPayments(bankTransfer, duePayments, 0, SolutionOrder.OLDEST_FIRST);
+		
+		// Check result: 10.00, then 4.00 + 6.00, then 4.00 + 3.00 + 3.00.
+		assertTrue(solutions.next().size() == 1);
+		List<PaymentAmount> resultList = solutions.next();
+		assertTrue("Solution: " + resultList, resultList.size() == 2 && resultList.get(1) == duePayments.get(2));
+		resultList = solutions.next();
+		assertTrue("Solution: " + resultList, resultList.size() == 3 && resultList.get(2) == duePayments.get(4));
+		assertTrue(!solutions.hasNext());
+	}
+
+	@Test
+	public void testFindAllPaymentsLimit() throws PaymentException {
+		// Prepare data: 60 distinct amounts, with millions of solutions.
+		PaymentAmount bankTransfer = new PaymentAmount(300.00f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		for (int amount = 1; amount <= 60; amount++) {
+			duePayments.add(new PaymentAmount(100 * amount));
+		}
+		
+		// Apply algo.
+		Iterator<List<PaymentAmount>> solutions = new MultisetPaymentCalculator().findAllPayments(bankTransfer, duePayments, 10, SolutionOrder.FEWEST_PAYMENTS);
+		
+		// Check result.
+		int nbSolutions = 0;
+		while (solutions.hasNext()) {
+			List<PaymentAmount> resultList = solutions.next();
+			int sum = 0;
+			for (PaymentAmount payment : resultList) {
+				sum += payment.getAmount();
+			}
+			assertTrue(sum == bankTransfer.getAmount());
+			nbSolutions++;
+		}
+		assertTrue(nbSolutions == 10);
+	}
+
+	@Test
+	public void testFindAllPaymentsNoResult() throws PaymentException {
+		// Prepare data.
+		PaymentAmount bankTransfer = new PaymentAmount(74.06f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.23f));
+		
+		// Apply algo.
+		Iterator<List<PaymentAmount>> solutions = new MultisetPaymentCalculator().findAllPayments(bankTransfer, duePayments, 0, SolutionOrder.ANY);
+		
+		// Check result.
+		assertTrue(!solutions.hasNext());
+	}
+}
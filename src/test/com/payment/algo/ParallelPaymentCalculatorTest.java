@@ -0,0 +1,138 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class ParallelPaymentCalculatorTest extends FindPaymentCalculatorTest {
+
+	@Override
+	protected IFindPaymentCalculator createCalculator() {
+		return new ParallelPaymentCalculator(4);
+	}
+
+	@Test
+	public void testFindPaymentsManyDuePayments() throws PaymentException {
+		// Prepare data: 60 due payments, the bank transfer is the sum of 5 of them.
+		Random random = new Random(11);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		int bankTransferAmount = 0;
+		for (int paymentIndex = 0; paymentIndex < 60; paymentIndex++) {
+			int amount = 1 + random.nextInt(100000);
+			duePayments.add(new PaymentAmount(amount));
+			if (paymentIndex % 12 == 0) {
+				bankTransferAmount += amount;
+			}
+		}
+		PaymentAmount bankTransfer = new PaymentAmount(bankTransferAmount);
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = calculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList != null);
+		int sum = 0;
+		for (PaymentAmount payment : resultList) {
+			sum += payment.getAmount();
+		}
+		assertTrue(sum == bankTransferAmount);
+	}
+
+	@Test
+	public void testFindPaymentsSingleThread() throws PaymentException {
+		// Prepare data.
+		IFindPaymentCalculator singleThreadCalculator = new ParallelPaymentCalculator(1);
+		PaymentAmount bankTransfer = new PaymentAmount(74.06f);
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = singleThreadCalculator.findPayments(bankTransfer, duePayments);
+		
+		// Check result.
+		assertTrue(resultList != null && resultList.size() == 3);
+	}
+
+	@Test
+	public void testClose() throws PaymentException {
+		// Prepare data.
+		ParallelPaymentCalculator parallelCalculator = new ParallelPaymentCalculator(2);
+		PaymentAmount bankTransfer = new PaymentAmount(74.06f);
+		List<PaymentAmount> duePayments = createDuePayments();
+		
+		// Apply algo: the threads are kept between the calls, then started again after close.
+		List<PaymentAmount> firstResultList = parallelCalculator.findPayments(bankTransfer, duePayments);
+		List<PaymentAmount> secondResultList = parallelCalculator.findPayments(bankTransfer, duePayments);
+		parallelCalculator.close();
+		List<PaymentAmount> closedResultList = parallelCalculator.findPayments(bankTransfer, duePayments);
+		parallelCalculator.close();
+		
+		// Check result.
+		assertTrue(firstResultList != null && firstResultList.size() == 3);
+		assertTrue(secondResultList != null && secondResultList.size() == 3);
+		assertTrue(closedResultList != null && closedResultList.size() == 3);
+	}
+
+	@Test
+	public void testCloseDuringSearch() throws PaymentException, InterruptedException {
+		// Prepare data: 24 large even amounts and an even bank transfer without solution, a search of a few hundred milliseconds.
+		final ParallelPaymentCalculator parallelCalculator = new ParallelPaymentCalculator(2);
+		Random random = new Random(7);
+		final List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		long total = 0;
+		for (int paymentIndex = 0; paymentIndex < 24; paymentIndex++) {
+			long amount = 2 * ((1 << 24) + random.nextInt(1 << 24));
+			duePayments.add(PaymentAmount.valueOf(amount));
+			total += amount;
+		}
+		final PaymentAmount bankTransfer = PaymentAmount.valueOf(total / 4 * 2 + 2);
+		final List<Object> outcomes = new ArrayList<Object>();
+		Thread searchThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					outcomes.add(String.valueOf(parallelCalculator.findPayments(bankTransfer, duePayments)));
+				} catch (PaymentException e) {
+					outcomes.add(e);
+				}
+			}
+		});
+
+		// Apply algo: close while the search runs, the search still ends.
+		searchThread.start();
+		Thread.sleep(50);
+		parallelCalculator.close();
+		searchThread.join(10000);
+		List<PaymentAmount> closedResultList = parallelCalculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		parallelCalculator.close();
+
+		// Check result.
+		assertTrue(!searchThread.isAlive());
+		assertTrue(outcomes.toString(), outcomes.size() == 1 && "null".equals(outcomes.get(0)));
+		assertTrue(closedResultList != null && closedResultList.size() == 3);
+	}
+
+	private static List<PaymentAmount> createDuePayments() {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+		return duePayments;
+	}
+}
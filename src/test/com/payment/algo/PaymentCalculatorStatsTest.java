@@ -0,0 +1,151 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class PaymentCalculatorStatsTest {
+
+	@Test
+	public void testSearchCompleted() throws PaymentException {
+		// Prepare data.
+		PaymentCalculatorStats stats = new PaymentCalculatorStats();
+		FindPaymentCalculator calculator = new FindPaymentCalculator();
+		calculator.setMetrics(stats);
+		
+		// Apply algo: a solution, no solution.
+		calculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		calculator.findPayments(new PaymentAmount(1000.00f), createDuePayments());
+		
+		// Check result.
+		assertTrue(stats.getSearchCount() == 2);
+		assertTrue(stats.getFoundCount() == 1 && stats.getNoSolutionCount() == 1 && stats.getGaveUpCount() == 0);
+		assertTrue(stats.getTotalNodes() > 2 && stats.getMaxNodes() <= stats.getTotalNodes());
+		assertTrue(stats.getMaxDepth() >= 3);
+		assertTrue(stats.getMemoMisses() > 0);
+		long[] timeHistogram = stats.getTimeHistogram();
+		long nbSearches = 0;
+		for (long count : timeHistogram) {
+			nbSearches += count;
+		}
+		assertTrue(timeHistogram.length == 6 && nbSearches == 2);
+		assertTrue(stats.getSlowestSearch() != null);
+	}
+
+	@Test
+	public void testSearchCompletedStatistics() throws PaymentException {
+		// Prepare data: the gcd of the due payments is 1.00, not a divisor of the bank transfer.
+		final List<SearchStatistics> statistics = new ArrayList<SearchStatistics>();
+		FindPaymentCalculator calculator = new FindPaymentCalculator();
+		calculator.setMetrics(new PaymentMetrics() {
+
+			@Override
+			public void searchCompleted(SearchStatistics searchStatistics) {
+				statistics.add(searchStatistics);
+			}
+		});
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(3.00f));
+		duePayments.add(new PaymentAmount(4.00f));
+		
+		// Apply algo.
+		calculator.findPayments(new PaymentAmount(5.50f), duePayments);
+		
+		// Check result.
+		assertTrue(statistics.size() == 1);
+		assertTrue(statistics.get(0).getBankTransfer() == 550 && statistics.get(0).getNbDuePayments() == 2);
+		assertTrue(statistics.get(0).getNodes() == 0 && statistics.get(0).getPrunedBranches() == 1);
+	}
+
+	@Test
+	public void testSearchCompletedEveryEngine() throws PaymentException {
+		// Prepare data.
+		PaymentCalculatorStats stats = new PaymentCalculatorStats();
+		AdaptivePaymentCalculator calculator = new AdaptivePaymentCalculator();
+		calculator.setMetrics(stats);
+		
+		// Apply algo: a solution with each engine, then a closest match.
+		for (PaymentCalculatorEngine engine : PaymentCalculatorEngine.values()) {
+			calculator.findPayments(new PaymentAmount(74.06f), createDuePayments(), engine);
+		}
+		calculator.findClosestPayments(new PaymentAmount(74.10f), createDuePayments(), 10);
+		
+		// Check result.
+		assertTrue(stats.getSearchCount() == PaymentCalculatorEngine.values().length + 1);
+		assertTrue(stats.getFoundCount() == stats.getSearchCount());
+	}
+
+	@Test
+	public void testNoMetrics() throws PaymentException {
+		// Prepare data.
+		PaymentCalculatorStats stats = new PaymentCalculatorStats();
+		FindPaymentCalculator calculator = new FindPaymentCalculator();
+		calculator.setMetrics(stats);
+		calculator.setMetrics(null);
+		
+		// Apply algo.
+		calculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		
+		// Check result.
+		assertTrue(stats.getSearchCount() == 0);
+	}
+
+	@Test
+	public void testReset() throws PaymentException {
+		// Prepare data.
+		PaymentCalculatorStats stats = new PaymentCalculatorStats();
+		AdaptivePaymentCalculator calculator = new AdaptivePaymentCalculator(0);
+		calculator.setMetrics(stats);
+		calculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		assertTrue(stats.getSearchCount() == 1);
+		
+		// Apply algo.
+		stats.reset();
+		
+		// Check result.
+		assertTrue(stats.getSearchCount() == 0 && stats.getTotalNodes() == 0 && stats.getSlowestSearch() == null);
+		assertTrue(stats.getTimeHistogram()[0] == 0);
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		// Prepare data.
+		PaymentCalculatorStats stats = new PaymentCalculatorStats();
+		FindPaymentCalculator calculator = new FindPaymentCalculator();
+		calculator.setMetrics(stats);
+		calculator.findPayments(new PaymentAmount(74.06f), createDuePayments());
+		
+		// Apply algo.
+		stats.register("test");
+		Object searchCount;
+		try {
+			searchCount = ManagementFactory.getPlatformMBeanServer().getAttribute(
+					new ObjectName("com.payment:type=PaymentCalculatorStats,name=\"test\""), "SearchCount");
+		} finally {
+			stats.unregister();
+		}
+		
+		// Check result.
+		assertTrue(Long.valueOf(1).equals(searchCount));
+	}
+
+	private static List<PaymentAmount> createDuePayments() {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+		return duePayments;
+	}
+}
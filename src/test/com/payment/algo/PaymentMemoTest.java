@@ -0,0 +1,45 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class PaymentMemoTest {
+
+	@Test
+	public void testAddContains() {
+		PaymentMemo memo = new PaymentMemo();
+		for (int amount = 0; amount < 10000; amount++) {
+			memo.add(amount, PaymentMemo.hash(amount));
+		}
+		
+		assertTrue(memo.size() == 10000);
+		for (int amount = 0; amount < 10000; amount++) {
+			assertTrue(memo.contains(amount, PaymentMemo.hash(amount)));
+		}
+		assertTrue(!memo.contains(10000, PaymentMemo.hash(10000)));
+		assertTrue(!memo.contains(1, PaymentMemo.hash(2)));
+	}
+
+	@Test
+	public void testAddTwice() {
+		PaymentMemo memo = new PaymentMemo();
+		memo.add(12, 34L);
+		memo.add(12, 34L);
+		
+		assertTrue(memo.size() == 1);
+	}
+
+	@Test
+	public void testBoundedSize() {
+		PaymentMemo memo = new PaymentMemo(100);
+		for (int amount = 0; amount < 100000; amount++) {
+			memo.add(amount, PaymentMemo.hash(amount));
+		}
+		
+		// The table never grows above 2 slots per entry, the oldest entries are evicted.
+		assertTrue(memo.size() <= 256);
+		assertTrue(memo.getEvictions() > 0);
+		assertTrue(memo.contains(99999, PaymentMemo.hash(99999)));
+	}
+}
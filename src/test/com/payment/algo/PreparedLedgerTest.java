@@ -0,0 +1,101 @@
+package com.payment.algo;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class PreparedLedgerTest {
+	
+	PreparedLedger ledger = null;
+
+	@Before
+	public void setUp() throws Exception {
+		List<PaymentAmount> duePayments = new ArrayList<PaymentAmount>();
+		duePayments.add(new PaymentAmount(22.75f));
+		duePayments.add(new PaymentAmount(59.33f));
+		duePayments.add(new PaymentAmount(34.22f));
+		duePayments.add(new PaymentAmount(27.21f));
+		duePayments.add(new PaymentAmount(17.09f));
+		duePayments.add(new PaymentAmount(100.99f));
+		ledger = new PreparedLedger(duePayments);
+	}
+
+	@Test
+	public void testFind() throws PaymentException {
+		// Apply algo several times, with growing bank transfers.
+		List<PaymentAmount> firstList = ledger.find(new PaymentAmount(17.09f));
+		List<PaymentAmount> secondList = ledger.find(new PaymentAmount(74.06f));
+		List<PaymentAmount> thirdList = ledger.find(new PaymentAmount(261.59f));
+		
+		// Check result.
+		assertTrue(firstList.size() == 1);
+		assertTrue(secondList.size() == 3);
+		assertTrue(secondList.contains(new PaymentAmount(34.22f)));
+		assertTrue(thirdList.size() == 6);
+	}
+
+	@Test
+	public void testFindNoResult() throws PaymentException {
+		// Apply algo: above the total, below the lowest, and not reachable.
+		assertTrue(ledger.find(new PaymentAmount(261.60f)) == null);
+		assertTrue(ledger.find(new PaymentAmount(17.08f)) == null);
+		assertTrue(ledger.find(new PaymentAmount(74.07f)) == null);
+	}
+
+	@Test
+	public void testAddRemove() throws PaymentException {
+		// Prepare data.
+		assertTrue(ledger.find(new PaymentAmount(74.06f)).size() == 3);
+		ledger.add(new PaymentAmount(1.00f));
+		assertTrue(ledger.remove(new PaymentAmount(34.22f)));
+		assertTrue(!ledger.remove(new PaymentAmount(34.22f)));
+		
+		// Apply algo.
+		List<PaymentAmount> resultList = ledger.find(new PaymentAmount(18.09f));
+		
+		// Check result.
+		assertTrue(ledger.size() == 6);
+		assertTrue(ledger.getTotal() == 22837);
+		assertTrue(resultList.size() == 2);
+		assertTrue(ledger.find(new PaymentAmount(74.06f)) == null);
+	}
+
+	@Test
+	public void testAddRemoveMany() throws PaymentException {
+		// Prepare data: the reachable sums are built once, then updated by each addition or removal.
+		Random random = new Random(3);
+		DynamicProgrammingPaymentCalculator dynamicCalculator = new DynamicProgrammingPaymentCalculator();
+		ledger.find(new PaymentAmount(261.59f));
+
+		for (int step = 0; step < 200; step++) {
+			if (ledger.size() > 0 && random.nextInt(3) == 0) {
+				assertTrue(ledger.remove(ledger.getDuePayments().get(random.nextInt(ledger.size()))));
+			} else {
+				ledger.add(PaymentAmount.valueOf(1 + random.nextInt(2000)));
+			}
+
+			// Apply algo.
+			PaymentAmount bankTransfer = PaymentAmount.valueOf(1 + random.nextInt(10000));
+			List<PaymentAmount> resultList = ledger.find(bankTransfer);
+
+			// Check result: as found by a new dynamic programming.
+			List<PaymentAmount> expectedList = dynamicCalculator.findPayments(bankTransfer, new ArrayList<PaymentAmount>(ledger.getDuePayments()));
+			assertTrue((resultList == null) == (expectedList == null));
+			if (resultList != null) {
+				long sum = 0;
+				for (PaymentAmount payment : resultList) {
+					sum += payment.getAmount();
+				}
+				assertTrue(sum == bankTransfer.getAmount());
+			}
+		}
+	}
+}
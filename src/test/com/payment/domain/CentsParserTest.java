@@ -0,0 +1,90 @@
+package com.payment.domain;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class CentsParserTest {
+
+	@Test
+	public void testParseCents() {
+		// Apply algo and check result.
+		assertTrue(CentsParser.parseCents("74.06") == 7406);
+		assertTrue(CentsParser.parseCents("12") == 1200);
+		assertTrue(CentsParser.parseCents("5.5") == 550);
+		assertTrue(CentsParser.parseCents(".25") == 25);
+		assertTrue(CentsParser.parseCents("2.") == 200);
+		assertTrue(CentsParser.parseCents(" 7.50 ") == 750);
+		assertTrue(CentsParser.parseCents("-3.10") == -310);
+		assertTrue(CentsParser.parseCents("+1.00") == 100);
+	}
+
+	@Test
+	public void testParseCentsLargeAmounts() {
+		// Apply algo and check result: a float keeps only about 7 significant digits.
+		assertTrue(CentsParser.parseCents("987654.32") == 98765432);
+		assertTrue(CentsParser.parseCents("21474836.48") == Integer.MAX_VALUE + 1L);
+		assertTrue(CentsParser.parseCents("92233720368547758.07") == Long.MAX_VALUE);
+		assertTrue(PaymentAmount.convertToInt(Float.parseFloat("987654.32")) != 98765432);
+	}
+
+	@Test
+	public void testParseCentsRounding() {
+		// Apply algo and check result: half-up on the third decimal.
+		assertTrue(CentsParser.parseCents("1.005") == 101);
+		assertTrue(CentsParser.parseCents("1.0049") == 100);
+		assertTrue(CentsParser.parseCents("1.999") == 200);
+		assertTrue(CentsParser.parseCents("-1.005") == -101);
+	}
+
+	@Test
+	public void testParseCentsByCharacter() {
+		// Prepare data.
+		CentsParser parser = new CentsParser();
+		parser.reset();
+		assertTrue(parser.isBlank());
+
+		// Apply algo.
+		for (byte character : "34.22".getBytes()) {
+			parser.accept(character);
+		}
+
+		// Check result.
+		assertTrue(!parser.isBlank());
+		assertTrue(parser.getCents() == 3422);
+	}
+
+	@Test(expected=NumberFormatException.class)
+	public void testParseCentsMalformed() {
+		// Apply algo.
+		CentsParser.parseCents("59,33");
+	}
+
+	@Test(expected=NumberFormatException.class)
+	public void testParseCentsEmpty() {
+		// Apply algo.
+		CentsParser.parseCents(" ");
+	}
+
+	@Test(expected=NumberFormatException.class)
+	public void testParseCentsTooLarge() {
+		// Apply algo.
+		CentsParser.parseCents("92233720368547759.00");
+	}
+
+	@Test(expected=NumberFormatException.class)
+	public void testParseCentsTooLargeDecimals() {
+		// Apply algo.
+		CentsParser.parseCents("92233720368547758.08");
+	}
+
+	@Test
+	public void testPaymentAmountParse() {
+		// Apply algo.
+		PaymentAmount paymentAmount = PaymentAmount.parse("100.99");
+
+		// Check result.
+		assertTrue(paymentAmount.getAmount() == 10099);
+		assertTrue(paymentAmount.equals(new PaymentAmount(100.99f)));
+	}
+}
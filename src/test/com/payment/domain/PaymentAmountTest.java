@@ -0,0 +1,68 @@
+package com.payment.domain;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class PaymentAmountTest {
+
+	@Test
+	public void testValueOfCached() {
+		// Apply algo and check result: the common amounts are shared, the others are not.
+		assertTrue(PaymentAmount.valueOf(7406) == PaymentAmount.valueOf(7406));
+		assertTrue(PaymentAmount.valueOf(0) == PaymentAmount.valueOf(0));
+		assertTrue(PaymentAmount.valueOf(123456789) != PaymentAmount.valueOf(123456789));
+		assertTrue(PaymentAmount.valueOf(123456789).equals(PaymentAmount.valueOf(123456789)));
+		assertTrue(PaymentAmount.valueOf(-310).getAmount() == -310);
+	}
+
+	@Test
+	public void testValueOfEqualsMutable() {
+		// Prepare data.
+		PaymentAmount immutableAmount = PaymentAmount.valueOf(2275);
+		PaymentAmount mutableAmount = new PaymentAmount(22.75f);
+
+		// Check result.
+		assertTrue(immutableAmount.equals(mutableAmount));
+		assertTrue(mutableAmount.equals(immutableAmount));
+		assertTrue(immutableAmount.hashCode() == mutableAmount.hashCode());
+		assertTrue(!immutableAmount.isMutable());
+		assertTrue(mutableAmount.isMutable());
+	}
+
+	@Test
+	public void testPlusMinus() {
+		// Prepare data.
+		PaymentAmount paymentAmount = new PaymentAmount(10.00f);
+
+		// Apply algo.
+		PaymentAmount sum = paymentAmount.plus(PaymentAmount.valueOf(250));
+		PaymentAmount difference = paymentAmount.minus(PaymentAmount.valueOf(1250));
+
+		// Check result: the operands are unchanged.
+		assertTrue(sum.getAmount() == 1250);
+		assertTrue(difference.getAmount() == -250);
+		assertTrue(paymentAmount.getAmount() == 1000);
+		assertTrue(!sum.isMutable());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testValueOfSetAmount() {
+		// Apply algo.
+		PaymentAmount.valueOf(100).setAmount(200);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testValueOfAddAmount() {
+		// Apply algo.
+		PaymentAmount.valueOf(123456789).addAmount(PaymentAmount.valueOf(1));
+	}
+
+	@Test
+	public void testToString() {
+		// Apply algo and check result: exact beyond the int and float ranges.
+		assertTrue(PaymentAmount.parse("123456789012.34").toString().equals("123456789012.34"));
+		assertTrue(new PaymentAmount(5).toString().equals("0.05"));
+		assertTrue(PaymentAmount.valueOf(-310).toString().equals("-3.10"));
+	}
+}
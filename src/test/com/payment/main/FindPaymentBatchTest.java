@@ -0,0 +1,146 @@
+package com.payment.main;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.algo.PaymentCalculatorEngine;
+import com.payment.exception.PaymentException;
+
+
+public class FindPaymentBatchTest {
+
+	File inputDirectory = null;
+
+	@Before
+	public void setUp() throws Exception {
+		inputDirectory = File.createTempFile("ledgers", "");
+		inputDirectory.delete();
+		inputDirectory.mkdir();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : inputDirectory.listFiles()) {
+			file.delete();
+		}
+		inputDirectory.delete();
+	}
+
+	@Test
+	public void testRun() throws PaymentException, IOException {
+		// Prepare data: a solved file, a file without solution and a malformed file.
+		File solvedFile = write("a.txt", "74.06\n22.75\n59.33\n34.22\n27.21\n17.09\n100.99\n");
+		File noSolutionFile = write("b.txt", "10.00\n3.00\n4.00\n");
+		File malformedFile = write("c.txt", "10.00\n3,00\n");
+		List<File> inputFiles = FindPaymentBatch.listInputFiles(inputDirectory.getPath());
+		FindPaymentBatch batch = new FindPaymentBatch(inputFiles, PaymentCalculatorEngine.ADAPTIVE, 0, 2);
+
+		// Apply algo.
+		batch.run();
+
+		// Check result.
+		assertTrue(batch.getSummary(), batch.getNbFiles() == 3);
+		assertTrue(batch.getSummary(), batch.getNbSolved() == 1);
+		assertTrue(batch.getSummary(), batch.getNbNoSolution() == 1);
+		assertTrue(batch.getSummary(), batch.getFailures().size() == 1 && batch.getFailures().containsKey(malformedFile));
+		String solvedOutput = read(FindPaymentBatch.getOutputFile(solvedFile));
+		assertTrue(solvedOutput, solvedOutput.length() == 18 && solvedOutput.contains("22.75|") && solvedOutput.contains("17.09|") && solvedOutput.contains("34.22|"));
+		assertTrue(read(FindPaymentBatch.getOutputFile(noSolutionFile)).equals("NO SOLUTION|"));
+		assertTrue(!FindPaymentBatch.getOutputFile(malformedFile).exists());
+	}
+
+	@Test
+	public void testRunParallel() throws PaymentException, IOException, InterruptedException {
+		// Prepare data: more files than threads.
+		for (int fileIndex = 0; fileIndex < 10; fileIndex++) {
+			write("ledger" + fileIndex + ".txt", "74.06\n22.75\n59.33\n34.22\n27.21\n17.09\n100.99\n");
+		}
+		List<File> inputFiles = FindPaymentBatch.listInputFiles(inputDirectory.getPath());
+		FindPaymentBatch batch = new FindPaymentBatch(inputFiles, PaymentCalculatorEngine.PARALLEL, 0, 2);
+		List<Thread> searchThreads = getSearchThreads();
+
+		// Apply algo.
+		batch.run();
+
+		// Check result: the search threads of the run are stopped.
+		assertTrue(batch.getSummary(), batch.getNbSolved() == 10);
+		for (Thread thread : getSearchThreads()) {
+			if (!searchThreads.contains(thread)) {
+				thread.join(5000);
+				assertTrue(thread.getName(), !thread.isAlive());
+			}
+		}
+	}
+
+	@Test
+	public void testListInputFilesPattern() throws PaymentException, IOException {
+		// Prepare data: the output files and the other extensions are skipped.
+		write("ledger1.txt", "1.00\n");
+		write("ledger2.txt", "1.00\n");
+		write("ledger2.txt" + FindPaymentBatch.OUTPUT_SUFFIX, "1.00\n");
+		write("ledger3.csv", "1.00\n");
+		write("other.txt", "1.00\n");
+
+		// Apply algo.
+		List<File> inputFiles = FindPaymentBatch.listInputFiles(new File(inputDirectory, "ledger?.txt").getPath());
+		List<File> allFiles = FindPaymentBatch.listInputFiles(new File(inputDirectory, "*").getPath());
+
+		// Check result.
+		assertTrue(inputFiles.toString(), inputFiles.size() == 2);
+		assertTrue(inputFiles.get(0).getName().equals("ledger1.txt"));
+		assertTrue(inputFiles.get(1).getName().equals("ledger2.txt"));
+		assertTrue(allFiles.toString(), allFiles.size() == 4);
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testListInputFilesNoDirectory() throws PaymentException {
+		// Apply algo.
+		FindPaymentBatch.listInputFiles(new File(inputDirectory, "missing/*.txt").getPath());
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(inputDirectory, name);
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	// Lines joined with "|".
+	private static List<Thread> getSearchThreads() {
+		List<Thread> searchThreads = new ArrayList<Thread>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("payment-search-")) {
+				searchThreads.add(thread);
+			}
+		}
+		return searchThreads;
+	}
+
+	private static String read(File file) throws IOException {
+		StringBuilder content = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				content.append(line).append('|');
+			}
+		} finally {
+			reader.close();
+		}
+		return content.toString();
+	}
+}
@@ -0,0 +1,204 @@
+package com.payment.main;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.algo.PaymentCalculatorEngine;
+import com.payment.domain.PaymentAmount;
+import com.payment.exception.PaymentException;
+
+
+public class FindPaymentServerTest {
+
+	FindPaymentServer server = null;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new FindPaymentServer(0, PaymentCalculatorEngine.ADAPTIVE, 1, 1, 10000, 10000);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	@Test
+	public void testHandleFind() {
+		// Apply algo.
+		String response = server.handle("FIND 74.06 22.75 59.33 34.22 27.21 17.09 100.99");
+
+		// Check result.
+		assertTrue(response, response.startsWith("OK ") && response.split(" ").length == 4);
+		assertTrue(response, response.contains(" 22.75") && response.contains(" 17.09") && response.contains(" 34.22"));
+	}
+
+	@Test
+	public void testHandleClosest() {
+		// Apply algo.
+		String response = server.handle("closest 100 31.00 45.00 10.00 20.00");
+
+		// Check result.
+		assertTrue(response, response.equals("OK 10.00 20.00") || response.equals("OK 20.00 10.00"));
+	}
+
+	@Test
+	public void testHandleNoSolution() {
+		// Apply algo and check result.
+		assertTrue(server.handle("FIND 10.00 3.00 4.00").equals("NO SOLUTION"));
+	}
+
+	@Test
+	public void testHandleErrors() {
+		// Apply algo and check result.
+		assertTrue(server.handle("FIND 10.00 3,00").startsWith("ERROR "));
+		assertTrue(server.handle("FIND").startsWith("ERROR "));
+		assertTrue(server.handle("SOLVE 10.00 3.00").startsWith("ERROR "));
+		assertTrue(server.handle("CLOSEST x 10.00 3.00").startsWith("ERROR "));
+		assertTrue(server.handle("CLOSEST -100 10.00 3.00").startsWith("ERROR "));
+	}
+
+	@Test
+	public void testHandleGaveUp() throws PaymentException {
+		// Prepare data: 26 large random amounts and half their total, a long search.
+		FindPaymentServer searchServer = new FindPaymentServer(0, PaymentCalculatorEngine.SEARCH, 1, 1, 10000, 50);
+		Random random = new Random(7);
+		StringBuilder request = new StringBuilder("FIND ");
+		long total = 0;
+		StringBuilder duePayments = new StringBuilder();
+		for (int paymentIndex = 0; paymentIndex < 26; paymentIndex++) {
+			long amount = (1 << 24) + random.nextInt(1 << 24);
+			duePayments.append(' ').append(PaymentAmount.valueOf(amount));
+			total += amount;
+		}
+		request.append(PaymentAmount.valueOf(total / 2)).append(duePayments);
+
+		// Apply algo.
+		String response;
+		try {
+			response = searchServer.handle(request.toString());
+		} finally {
+			searchServer.stop();
+		}
+
+		// Check result.
+		assertTrue(response, response.equals("GAVE UP"));
+	}
+
+	@Test
+	public void testHandleClosestGaveUp() throws PaymentException {
+		// Prepare data: 60 large random amounts and half their total, a long closest search on a calculator without a budget.
+		FindPaymentServer parallelServer = new FindPaymentServer(0, PaymentCalculatorEngine.PARALLEL, 1, 1, 10000, 50);
+		Random random = new Random(7);
+		StringBuilder request = new StringBuilder("CLOSEST 100 ");
+		long total = 0;
+		StringBuilder duePayments = new StringBuilder();
+		for (int paymentIndex = 0; paymentIndex < 60; paymentIndex++) {
+			long amount = (1 << 24) + random.nextInt(1 << 24);
+			duePayments.append(' ').append(PaymentAmount.valueOf(amount));
+			total += amount;
+		}
+		request.append(PaymentAmount.valueOf(total / 2 + 1)).append(duePayments);
+
+		// Apply algo.
+		String response;
+		try {
+			response = parallelServer.handle(request.toString());
+		} finally {
+			parallelServer.stop();
+		}
+
+		// Check result.
+		assertTrue(response, response.equals("GAVE UP"));
+	}
+
+	@Test
+	public void testConnection() throws PaymentException, IOException {
+		// Prepare data.
+		server.warmUp(10);
+		server.start();
+		Socket socket = connect();
+		try {
+			// Apply algo: two requests on the same connection.
+			String firstResponse = request(socket, "FIND 12.10 12.10");
+			String secondResponse = request(socket, "FIND 1.00 3.00");
+
+			// Check result.
+			assertTrue(firstResponse, firstResponse.equals("OK 12.10"));
+			assertTrue(secondResponse, secondResponse.equals("NO SOLUTION"));
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testRequestTooLong() throws PaymentException, IOException {
+		// Prepare data.
+		server.start();
+		Socket socket = connect();
+		StringBuilder request = new StringBuilder("FIND 1.00");
+		while (request.length() <= FindPaymentServer.MAX_REQUEST_LENGTH) {
+			request.append(" 1.00");
+		}
+		try {
+			// Apply algo.
+			String response = request(socket, request.toString());
+			int end = socket.getInputStream().read();
+
+			// Check result: an error, then the connection is closed.
+			assertTrue(response, response.startsWith("ERROR "));
+			assertTrue(end == -1);
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testBusy() throws PaymentException, IOException {
+		// Prepare data: one worker and one waiting connection.
+		server.start();
+		Socket servedSocket = connect();
+		Socket waitingSocket = null;
+		Socket rejectedSocket = null;
+		try {
+			assertTrue(request(servedSocket, "FIND 12.10 12.10").equals("OK 12.10"));
+			waitingSocket = connect();
+
+			// Apply algo.
+			rejectedSocket = connect();
+			String response = new BufferedReader(new InputStreamReader(rejectedSocket.getInputStream(), "US-ASCII")).readLine();
+
+			// Check result.
+			assertTrue(response, "BUSY".equals(response));
+		} finally {
+			servedSocket.close();
+			if (waitingSocket != null) {
+				waitingSocket.close();
+			}
+			if (rejectedSocket != null) {
+				rejectedSocket.close();
+			}
+		}
+	}
+
+	private Socket connect() throws IOException {
+		return new Socket(InetAddress.getByName(null), server.getPort());
+	}
+
+	private static String request(Socket socket, String request) throws IOException {
+		Writer writer = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+		writer.write(request + "\n");
+		writer.flush();
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII")).readLine();
+	}
+}
@@ -0,0 +1,155 @@
+package com.payment.main;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.payment.exception.PaymentException;
+
+
+public class LedgerFileReaderTest {
+
+	File inputFile = null;
+
+	@Before
+	public void setUp() throws Exception {
+		inputFile = File.createTempFile("ledger", ".txt");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		inputFile.delete();
+	}
+
+	@Test
+	public void testRead() throws PaymentException, IOException {
+		// Prepare data.
+		write("74.06\n22.75\n59.33\n34.22\n27.21\n17.09\n100.99\n");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		ledgerReader.read();
+
+		// Check result.
+		assertTrue(ledgerReader.getBankTransfer() == 7406);
+		assertTrue(Arrays.equals(ledgerReader.getDuePayments(), new long[] { 2275, 5933, 3422, 2721, 1709, 10099 }));
+	}
+
+	@Test
+	public void testReadFormats() throws PaymentException, IOException {
+		// Prepare data: spaces, CRLF, no decimals, one decimal, rounded decimals, sign, no final line feed.
+		write(" 12 \r\n5\r\n5.5\n.25\n-3.10\n+1.005\n1.0049\n2.");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		ledgerReader.read();
+
+		// Check result.
+		assertTrue(ledgerReader.getBankTransfer() == 1200);
+		assertTrue(Arrays.toString(ledgerReader.getDuePayments()), Arrays.equals(ledgerReader.getDuePayments(), new long[] { 500, 550, 25, -310, 101, 100, 200 }));
+	}
+
+	@Test
+	public void testReadSmallWindows() throws PaymentException, IOException {
+		// Prepare data: 1000 due payments, read 7 bytes at a time (the lines are split between windows).
+		StringBuilder content = new StringBuilder("10000.00\n");
+		long[] expectedPayments = new long[1000];
+		for (int paymentIndex = 0; paymentIndex < 1000; paymentIndex++) {
+			expectedPayments[paymentIndex] = 100 * paymentIndex + paymentIndex % 100;
+			content.append(paymentIndex).append('.').append(paymentIndex % 100 < 10 ? "0" : "").append(paymentIndex % 100).append('\n');
+		}
+		write(content.toString());
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath(), 7);
+
+		// Apply algo.
+		ledgerReader.read();
+
+		// Check result.
+		assertTrue(ledgerReader.getBankTransfer() == 1000000);
+		assertTrue(Arrays.equals(ledgerReader.getDuePayments(), expectedPayments));
+	}
+
+	@Test
+	public void testReadEmptyFile() throws PaymentException, IOException {
+		// Prepare data.
+		write("");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		ledgerReader.read();
+
+		// Check result.
+		assertTrue(ledgerReader.getBankTransfer() == 0);
+		assertTrue(ledgerReader.getDuePayments().length == 0);
+	}
+
+	@Test
+	public void testReadMalformedLine() throws IOException {
+		// Prepare data.
+		write("74.06\n22.75\n59,33\n34.22\n");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		String message = null;
+		try {
+			ledgerReader.read();
+		} catch (PaymentException e) {
+			message = e.getMessage();
+		}
+
+		// Check result.
+		assertTrue(message, message != null && message.contains("line 3"));
+	}
+
+	@Test
+	public void testReadEmptyLine() throws IOException {
+		// Prepare data.
+		write("74.06\n\n22.75\n");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		String message = null;
+		try {
+			ledgerReader.read();
+		} catch (PaymentException e) {
+			message = e.getMessage();
+		}
+
+		// Check result.
+		assertTrue(message, message != null && message.contains("line 2"));
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testReadTooLargeAmount() throws PaymentException, IOException {
+		// Prepare data.
+		write("74.06\n100000000000000000.00\n");
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath());
+
+		// Apply algo.
+		ledgerReader.read();
+	}
+
+	@Test(expected=PaymentException.class)
+	public void testReadNoFile() throws PaymentException {
+		// Prepare data.
+		LedgerFileReader ledgerReader = new LedgerFileReader(inputFile.getPath() + ".missing");
+
+		// Apply algo.
+		ledgerReader.read();
+	}
+
+	private void write(String content) throws IOException {
+		FileWriter writer = new FileWriter(inputFile);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+}